@@ -0,0 +1,220 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Laços colunares com a Vector API ({@code jdk.incubator.vector}): cada instrução
+ * processa {@code SPECIES.length()} pontos por vez.
+ *
+ * Só as operações cuja forma vetorial é exatamente a mesma do escalar são vetorizadas
+ * ({@code + - * /}, {@code abs}, {@code sqrt} e o quadrado), então o resultado continua
+ * idêntico, bit a bit, ao da avaliação ponto a ponto. As demais (potência, funções
+ * trigonométricas e logarítmicas, {@code floor}, {@code ceil}, fatorial) usam os laços
+ * escalares herdados: a Vector API não tem {@code floor}/{@code ceil} e suas funções
+ * transcendentais podem diferir de {@link Math} no último bit.
+ *
+ * Fica em {@code src-simd} porque exige Java 16+ e {@code --add-modules jdk.incubator.vector}
+ * tanto para compilar quanto para executar; é carregada por reflexão em {@link ColumnKernels}.
+ */
+final class VectorColumnKernels extends ColumnKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    String name() {
+        return "vetorial (" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    void binaryColumns(int opcode, double[] a, double[] b, int n) {
+        int bound = SPECIES.loopBound(n);
+        int step = SPECIES.length();
+        int i = 0;
+        switch (opcode) {
+            case Opcode.ADD:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] + b[i];
+                }
+                break;
+            case Opcode.SUB:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).sub(DoubleVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] - b[i];
+                }
+                break;
+            case Opcode.MUL:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] * b[i];
+                }
+                break;
+            case Opcode.DIV:
+                checkNoZero(b, n);
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).div(DoubleVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] / b[i];
+                }
+                break;
+            default:
+                super.binaryColumns(opcode, a, b, n);
+                break;
+        }
+    }
+
+    @Override
+    void binaryColumnScalar(int opcode, double[] a, double b, int n) {
+        int bound = SPECIES.loopBound(n);
+        int step = SPECIES.length();
+        DoubleVector vb = DoubleVector.broadcast(SPECIES, b);
+        int i = 0;
+        switch (opcode) {
+            case Opcode.ADD:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).add(vb).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] + b;
+                }
+                break;
+            case Opcode.SUB:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).sub(vb).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] - b;
+                }
+                break;
+            case Opcode.MUL:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).mul(vb).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] * b;
+                }
+                break;
+            case Opcode.DIV:
+                if (b == 0) {
+                    throw new ExpressionException("Divisão por zero.");
+                }
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).div(vb).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] / b;
+                }
+                break;
+            default:
+                super.binaryColumnScalar(opcode, a, b, n);
+                break;
+        }
+    }
+
+    @Override
+    void binaryScalarColumn(int opcode, double a, double[] b, double[] dest, int n) {
+        int bound = SPECIES.loopBound(n);
+        int step = SPECIES.length();
+        DoubleVector va = DoubleVector.broadcast(SPECIES, a);
+        int i = 0;
+        switch (opcode) {
+            case Opcode.ADD:
+                for (; i < bound; i += step) {
+                    va.add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(dest, i);
+                }
+                for (; i < n; i++) {
+                    dest[i] = a + b[i];
+                }
+                break;
+            case Opcode.SUB:
+                for (; i < bound; i += step) {
+                    va.sub(DoubleVector.fromArray(SPECIES, b, i)).intoArray(dest, i);
+                }
+                for (; i < n; i++) {
+                    dest[i] = a - b[i];
+                }
+                break;
+            case Opcode.MUL:
+                for (; i < bound; i += step) {
+                    va.mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(dest, i);
+                }
+                for (; i < n; i++) {
+                    dest[i] = a * b[i];
+                }
+                break;
+            case Opcode.DIV:
+                checkNoZero(b, n);
+                for (; i < bound; i += step) {
+                    va.div(DoubleVector.fromArray(SPECIES, b, i)).intoArray(dest, i);
+                }
+                for (; i < n; i++) {
+                    dest[i] = a / b[i];
+                }
+                break;
+            default:
+                super.binaryScalarColumn(opcode, a, b, dest, n);
+                break;
+        }
+    }
+
+    @Override
+    void unaryColumn(int opcode, double[] a, int n) {
+        int bound = SPECIES.loopBound(n);
+        int step = SPECIES.length();
+        int i = 0;
+        switch (opcode) {
+            case Opcode.SQUARE:
+                for (; i < bound; i += step) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, a, i);
+                    v.mul(v).intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = a[i] * a[i];
+                }
+                break;
+            case Opcode.ABS:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).abs().intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = Math.abs(a[i]);
+                }
+                break;
+            case Opcode.SQRT:
+                for (; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, a, i).sqrt().intoArray(a, i);
+                }
+                for (; i < n; i++) {
+                    a[i] = Math.sqrt(a[i]);
+                }
+                break;
+            default:
+                super.unaryColumn(opcode, a, n);
+                break;
+        }
+    }
+
+    private static void checkNoZero(double[] b, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            if (DoubleVector.fromArray(SPECIES, b, i).eq(0.0).anyTrue()) {
+                throw new ExpressionException("Divisão por zero.");
+            }
+        }
+        for (; i < n; i++) {
+            if (b[i] == 0) {
+                throw new ExpressionException("Divisão por zero.");
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Amostragem adaptativa de uma curva, guiada pela curvatura medida em pixels.
+ *
+ * Parte de uma grade grossa (um ponto a cada {@link #COARSE_STEP} pixels) e divide ao meio,
+ * nível a nível, os trechos ao redor de pontos que se afastam da reta entre os vizinhos mais
+ * que a tolerância ou em que a curva vira mais que o ângulo máximo, além dos trechos em que
+ * só uma das pontas é finita (bordas do domínio, assíntotas). O critério usa só pontos já
+ * avaliados: uma reta fica com a grade inicial. Trechos retos ficam com poucos pontos; detalhes finos,
+ * como {@code sin(1/x)} perto de 0, recebem muitos.
+ *
+ * Cada nível avalia todos os seus pontos do meio em lote. O total de avaliações nunca passa do
+ * orçamento: quando ele acaba, os trechos que ainda pediam divisão ficam como estão.
+ *
+ * Um ponto cuja avaliação gera erro (ex: {@code 1/x} em x = 0, que cai na grade da janela
+ * padrão) vira NaN: a curva fica com uma lacuna ali, refinada como uma borda de domínio,
+ * e o resto dela continua sendo amostrado.
+ */
+public final class AdaptiveSampler {
+
+    // Espaçamento da grade inicial, em pixels
+    static final double COARSE_STEP = 8;
+    // Trechos mais estreitos que isso (em pixels) não são mais divididos
+    static final double MIN_SEGMENT = 1.0 / 32;
+    // A virada só conta em trechos cuja corda passa disso (em pixels): abaixo, ela não aparece na tela
+    private static final double MIN_TURN_LENGTH = 4;
+
+    public static final double DEFAULT_TOLERANCE = 0.5;
+    public static final double DEFAULT_MAX_TURN = Math.toRadians(10);
+    public static final int DEFAULT_BUDGET = 8192;
+
+    private final double tolerance;
+    private final double maxTurn;
+    private final int budget;
+
+    public AdaptiveSampler() {
+        this(DEFAULT_TOLERANCE, DEFAULT_MAX_TURN, DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param tolerance Distância máxima, em pixels, entre um ponto e a reta que liga seus vizinhos.
+     * @param maxTurn Ângulo máximo, em radianos, entre os segmentos que chegam e saem de um ponto.
+     * @param budget Máximo de avaliações por amostragem, incluindo a grade inicial.
+     */
+    public AdaptiveSampler(double tolerance, double maxTurn, int budget) {
+        if (!(tolerance > 0) || !(maxTurn > 0) || budget < 2) {
+            throw new IllegalArgumentException("Parâmetros de amostragem inválidos: tolerância " + tolerance
+                                               + ", ângulo " + maxTurn + ", orçamento " + budget);
+        }
+        this.tolerance = tolerance;
+        this.maxTurn = maxTurn;
+        this.budget = budget;
+    }
+
+    /**
+     * Resultado de uma amostragem: os pontos em ordem crescente de x e o custo em avaliações.
+     */
+    public static final class Result {
+        private final double[] xs;
+        private final double[] ys;
+        private final int evaluations;
+        private final int fixedStepEvaluations;
+        private final boolean budgetExhausted;
+
+        Result(double[] xs, double[] ys, int evaluations, int fixedStepEvaluations, boolean budgetExhausted) {
+            this.xs = xs;
+            this.ys = ys;
+            this.evaluations = evaluations;
+            this.fixedStepEvaluations = fixedStepEvaluations;
+            this.budgetExhausted = budgetExhausted;
+        }
+
+        public int size() {
+            return xs.length;
+        }
+
+        public double x(int i) {
+            return xs[i];
+        }
+
+        public double y(int i) {
+            return ys[i];
+        }
+
+        double[] xs() {
+            return xs;
+        }
+
+        double[] ys() {
+            return ys;
+        }
+
+        /**
+         * @return Avaliações feitas (igual a {@link #size()}: cada ponto é avaliado uma vez).
+         */
+        public int getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * @return Avaliações da amostragem de passo fixo de 1 pixel na mesma largura.
+         */
+        public int getFixedStepEvaluations() {
+            return fixedStepEvaluations;
+        }
+
+        /**
+         * @return Se algum trecho ainda pedia divisão quando o orçamento acabou.
+         */
+        public boolean isBudgetExhausted() {
+            return budgetExhausted;
+        }
+
+        @Override
+        public String toString() {
+            return evaluations + " avaliações (passo fixo: " + fixedStepEvaluations + ")"
+                   + (budgetExhausted ? ", orçamento esgotado" : "");
+        }
+    }
+
+    /**
+     * Amostra a função em {@code [xMin, xMax]}.
+     *
+     * @param xScale Pixels por unidade de x.
+     * @param yScale Pixels por unidade de y. Só a escala importa: deslocar a janela na vertical
+     *               não muda o resultado.
+     * @throws ExpressionException Se todos os pontos da grade inicial gerarem erro; pontos
+     *                             isolados com erro viram NaN.
+     */
+    public Result sample(FunctionEvaluator evaluator, double xMin, double xMax, double xScale, double yScale) {
+        return sample(evaluator, xMin, xMax, xScale, yScale, () -> false);
+    }
+
+    /**
+     * Como {@link #sample(FunctionEvaluator, double, double, double, double)}, mas consulta
+     * {@code cancelled} antes de cada nível e desiste (retornando {@code null}) se ele for verdadeiro.
+     */
+    public Result sample(FunctionEvaluator evaluator, double xMin, double xMax, double xScale, double yScale,
+                         BooleanSupplier cancelled) {
+        if (!(xMax > xMin) || !(xScale > 0) || !(yScale > 0)) {
+            throw new IllegalArgumentException("Janela inválida: [" + xMin + ", " + xMax + "], escalas "
+                                               + xScale + " e " + yScale);
+        }
+        double width = (xMax - xMin) * xScale;
+        int fixedStep = (int) Math.floor(width) + 1;
+        int count = Math.min(budget, (int) Math.ceil(width / COARSE_STEP) + 1);
+        count = Math.max(2, count);
+
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = FunctionEvaluator.sampleX(xMin, xMax, count, i);
+        }
+        RuntimeException failure = evaluate(evaluator, xs, ys);
+        if (failure != null && allFailed(ys)) {
+            throw failure; // A função não tem nenhum ponto válido: o erro é dela, não de um ponto
+        }
+        int evaluations = count;
+        boolean exhausted = false;
+
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            // Pontos que se afastam da reta entre os vizinhos: os trechos dos dois lados são divididos
+            boolean[] bent = new boolean[count];
+            for (int i = 1; i < count - 1; i++) {
+                bent[i] = needsRefinement(xs[i - 1], ys[i - 1], xs[i], ys[i], xs[i + 1], ys[i + 1], xScale, yScale);
+            }
+            boolean[] halved = new boolean[count - 1];
+            int mids = 0;
+            for (int i = 0; i < count - 1; i++) {
+                boolean edge = Double.isFinite(ys[i]) != Double.isFinite(ys[i + 1]);
+                if (!(bent[i] || bent[i + 1] || edge) || (xs[i + 1] - xs[i]) * xScale <= MIN_SEGMENT) {
+                    continue;
+                }
+                if (evaluations + mids == budget) {
+                    exhausted = true; // Sem orçamento para este trecho e os seguintes
+                    break;
+                }
+                halved[i] = true;
+                mids++;
+            }
+            if (mids == 0) {
+                break;
+            }
+            double[] midXs = new double[mids];
+            for (int i = 0, m = 0; i < count - 1; i++) {
+                if (halved[i]) {
+                    midXs[m++] = xs[i] + (xs[i + 1] - xs[i]) / 2;
+                }
+            }
+            double[] midYs = new double[mids];
+            evaluate(evaluator, midXs, midYs);
+            evaluations += mids;
+
+            double[] newXs = new double[count + mids];
+            double[] newYs = new double[count + mids];
+            int n = 0;
+            for (int i = 0, m = 0; i < count; i++) {
+                newXs[n] = xs[i];
+                newYs[n] = ys[i];
+                n++;
+                if (i < count - 1 && halved[i]) {
+                    newXs[n] = midXs[m];
+                    newYs[n] = midYs[m];
+                    n++;
+                    m++;
+                }
+            }
+            xs = newXs;
+            ys = newYs;
+            count = n;
+        }
+        return new Result(xs, ys, evaluations, fixedStep, exhausted);
+    }
+
+    // Avalia em lote; se algum ponto gerar erro, avalia um a um e deixa NaN nos que falharem.
+    // Retorna o primeiro erro, ou null se nenhum ponto falhou.
+    private static RuntimeException evaluate(FunctionEvaluator evaluator, double[] xs, double[] ys) {
+        try {
+            evaluator.evaluate(xs, ys);
+            return null;
+        } catch (ExpressionException | IllegalArgumentException batchError) {
+            RuntimeException first = null;
+            for (int i = 0; i < xs.length; i++) {
+                try {
+                    ys[i] = evaluator.evaluate(xs[i]);
+                } catch (ExpressionException | IllegalArgumentException e) {
+                    ys[i] = Double.NaN;
+                    if (first == null) {
+                        first = e;
+                    }
+                }
+            }
+            return first != null ? first : batchError;
+        }
+    }
+
+    // Só NaN (e não infinitos), que é o que sobra quando todos os pontos falharam
+    private static boolean allFailed(double[] ys) {
+        for (double y : ys) {
+            if (!Double.isNaN(y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Critério de divisão ao redor do ponto b, com vizinhos a e c, medido em pixels
+    boolean needsRefinement(double xa, double ya, double xb, double yb, double xc, double yc,
+                            double xScale, double yScale) {
+        if (!Double.isFinite(ya) || !Double.isFinite(yb) || !Double.isFinite(yc)) {
+            return false; // Bordas do domínio são tratadas trecho a trecho
+        }
+        // Distância vertical de b à corda entre a e c
+        double chord = ya + (yc - ya) * (xb - xa) / (xc - xa);
+        if (Math.abs(yb - chord) * yScale > tolerance) {
+            return true;
+        }
+        double dx1 = (xb - xa) * xScale;
+        double dx2 = (xc - xb) * xScale;
+        double dy1 = (yb - ya) * yScale;
+        double dy2 = (yc - yb) * yScale;
+        if (Math.hypot(dx1 + dx2, dy1 + dy2) <= MIN_TURN_LENGTH) {
+            return false;
+        }
+        double turn = Math.abs(Math.atan2(dx1 * dy2 - dy1 * dx2, dx1 * dx2 + dy1 * dy2));
+        return turn > maxTurn;
+    }
+}
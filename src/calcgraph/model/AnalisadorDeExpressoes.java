@@ -1,9 +1,12 @@
 package calcgraph.model;
 
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.CompiledExpressionCache;
 import calcgraph.model.evaluator.PostfixEvaluator;
 import calcgraph.model.exception.ExpressionException;
 import calcgraph.model.parser.ExpressionParser;
 import calcgraph.model.parser.ShuntingYardAlgorithm;
+import calcgraph.model.token.NumberToken;
 import calcgraph.model.token.Token;
 import calcgraph.model.token.TokenType;
 
@@ -43,10 +46,27 @@ public class AnalisadorDeExpressoes {
         return pilhaParenteses.isEmpty();
     }
 
-   
+    /**
+     * Uma expressão é uma função (gráfico) quando tem a variável x como token, e não
+     * apenas a letra x no meio de outra palavra. Expressões que nem tokenizam seguem
+     * para a avaliação, que reporta o erro.
+     */
+    static boolean dependeDeX(String expressao) {
+        try {
+            for (Token token : new ExpressionParser().tokenize(expressao)) {
+                if (token.getType() == TokenType.VARIABLE) {
+                    return true;
+                }
+            }
+        } catch (ExpressionException e) {
+            return false;
+        }
+        return false;
+    }
+
     public static ResultadoAvaliacao  avaliarExpressao(String expressao) {
         
-        if (expressao.contains("x")) {
+        if (dependeDeX(expressao)) {
         // É uma função. Retorna um objeto do tipo GRAFICO com a expressão.
             return new ResultadoAvaliacao(expressao);
         }
@@ -55,24 +75,13 @@ public class AnalisadorDeExpressoes {
             throw new ExpressionException("Expressão inválida: Parênteses desbalanceados ou vazia.");
         }
         
-        ExpressionParser parser = new ExpressionParser();
-        ShuntingYardAlgorithm shuntingYard = new ShuntingYardAlgorithm();
-        PostfixEvaluator evaluator = new PostfixEvaluator();
-
-        List<Token> infixTokensPreProcessed;
-        List<Token> postfixTokens;
         double result;
 
         try {
-            infixTokensPreProcessed = parser.tokenize(expressao); 
-            System.out.println("Tokens Infixos (Sem validação): " + infixTokensPreProcessed);
-            parser.validateTokenSequence(infixTokensPreProcessed);
-            postfixTokens = shuntingYard.convertToPostfix(infixTokensPreProcessed);
+            // Reaproveita a forma compilada se a expressão já foi avaliada antes
+            CompiledExpression compilada = CompiledExpressionCache.shared().get(expressao);
 
-            System.out.println("Tokens Infixos (Processados): " + infixTokensPreProcessed);
-            System.out.println("Tokens Pós-Fixados: " + postfixTokens);
-
-            result = evaluator.evaluate(postfixTokens);
+            result = compilada.evaluate();
 
         } catch (ExpressionException e) {
             throw e;
@@ -85,7 +94,7 @@ public class AnalisadorDeExpressoes {
     
     public static ResultadoAvaliacao  avaliarExpressaoBinario(String expressao) {
         
-        if (expressao.contains("x")) {
+        if (dependeDeX(expressao)) {
         // É uma função. Retorna um objeto do tipo GRAFICO com a expressão.
             return new ResultadoAvaliacao(expressao);
         }
@@ -105,12 +114,14 @@ public class AnalisadorDeExpressoes {
         try {
             infixTokensPreProcessed = parser.tokenize(expressao); 
             System.out.println("Tokens Infixos (Sem validação): " + infixTokensPreProcessed);
-            for(Token bin : infixTokensPreProcessed){
+            for(int i = 0; i < infixTokensPreProcessed.size(); i++){
+                Token bin = infixTokensPreProcessed.get(i);
                 if(bin.getType() == TokenType.NUMBER){
                     System.out.println("entrou, "+bin.getValue());
                    int n = Integer.parseInt(bin.getValue(), 2);
-                   bin.setValue(Integer.toString(n));
-                   System.out.println("passou, \n "+bin.getValue());
+                   // Tokens são imutáveis: troca o token binário pelo decimal equivalente
+                   infixTokensPreProcessed.set(i, new NumberToken(Integer.toString(n)));
+                   System.out.println("passou, \n "+infixTokensPreProcessed.get(i).getValue());
                 }
             }
             parser.validateTokenSequence(infixTokensPreProcessed);
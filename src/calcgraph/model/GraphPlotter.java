@@ -1,25 +1,49 @@
 package calcgraph.model;
 
-import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.CompiledExpressionCache;
+import calcgraph.model.evaluator.Opcode;
 import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+import calcgraph.model.token.Token;
+import calcgraph.model.token.TokenType;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Polyline;
 import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
-import javafx.scene.text.Text;
-
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Desenha o gráfico de uma ou mais funções em um {@link Canvas} dentro do painel: eixos, marcadores,
+ * rótulos e as curvas são pintados direto pelo {@link GraphicsContext} a partir de vetores
+ * {@code double[]}, sem criar nós da cena nem {@code Double} por coordenada a cada quadro.
+ * Antes de desenhar, cada curva passa pelo {@link M4Decimator}: amostras além da resolução da
+ * tela não aumentam o trabalho de desenho.
+ *
+ * As curvas são amostradas fora da thread do JavaFX pelo {@link PlotSampler}, todas no mesmo
+ * pedido: enquanto a amostragem da janela atual não chega, o quadro repinta as últimas curvas
+ * recebidas na posição nova. Cada função tem sua cor, que também pinta suas linhas na legenda.
+ */
 public class GraphPlotter {
 
+    private static final Font LABEL_FONT = new Font(8);
+
     private final Pane graphPane;
+    private final Canvas canvas;
     private final ListView<String> legendListView;
     private final AnalisadorDeExpressoes analisador;
 
@@ -29,10 +53,43 @@ public class GraphPlotter {
     private double yMin = -10;
     private double yMax = 10;
     
-    // Armazena a função atual para redesenhar
-    private String currentFunction;
-    
-    private FunctionEvaluator currentEvaluator;
+    // Funções plotadas, na ordem da legenda
+    private final List<PlottedFunction> functions = new ArrayList<>();
+    // Cores das funções, na ordem em que entram no gráfico
+    private static final Color[] PALETTE = {
+        Color.BLUE, Color.RED, Color.FORESTGREEN, Color.DARKORANGE,
+        Color.PURPLE, Color.TEAL, Color.BROWN, Color.MAGENTA
+    };
+    // Nomes das funções na legenda: f(x), g(x), h(x)...
+    private static final String[] NAMES = {"f", "g", "h", "p", "q", "r", "s", "u", "v", "w"};
+
+    // Parâmetros das funções (ex: a, b e c em a*x^2 + b*x + c) e seus valores, comuns a todas
+    private final Map<String, Double> parameters = new LinkedHashMap<>();
+    private static final double DEFAULT_PARAMETER = 1.0;
+
+    // Amostragem em segundo plano; as curvas publicadas ficam em cada função
+    private final PlotSampler plotSampler = new PlotSampler();
+    // Amostragem guiada pela curvatura; desligada, volta ao passo fixo de 1 pixel
+    private final AdaptiveSampler adaptiveSampler = new AdaptiveSampler();
+    private boolean adaptiveSampling = true;
+    // Janela e parâmetros do último pedido: só uma mudança neles gera uma nova amostragem
+    private double requestedXMin;
+    private double requestedXMax;
+    private double requestedYScale;
+    private boolean samplesStale = true;
+    // Sem amostragem adaptativa, cada curva é montada de blocos de amostras por nível de zoom;
+    // os blocos que faltam, de todas as funções, são pedidos de uma vez, como uma faixa contínua
+    private int requestedLevel;
+    private long requestedFromTile;
+    private long requestedToTile;
+    // Níveis vizinhos usados, nessa ordem, enquanto um bloco do nível atual não chega
+    private static final int[] FALLBACK_LEVELS = {1, -1, -2};
+    // A legenda é atualizada quando chega a primeira curva depois de redraw()
+    private boolean legendPending;
+    // Cor de cada linha da legenda
+    private final Map<String, Color> legendColors = new HashMap<>();
+    // Pontos válidos da curva em coordenadas do painel, reduzidos a no máximo 4 por coluna de pixels
+    private final M4Decimator curve = new M4Decimator();
     
     // Variáveis para o zoom e arrasto
     private static final double ZOOM_FACTOR = 1.1; // Aumentar este valor para um zoom mais forte
@@ -41,6 +98,9 @@ public class GraphPlotter {
     private double dragLastX;
     private double dragLastY;
 
+    // Rolagem e arrasto só pedem redesenho; o quadro é desenhado uma vez por pulso
+    private final RedrawScheduler redrawScheduler = new RedrawScheduler(this::render);
+
     public GraphPlotter(Pane graphPane, ListView<String> legendListView) {
         this.graphPane = graphPane;
         this.legendListView = legendListView;
@@ -51,11 +111,61 @@ public class GraphPlotter {
         Rectangle clip = new Rectangle(0, 0, graphPane.getPrefWidth(), graphPane.getPrefHeight());
         graphPane.setClip(clip);
 
+        // Todo o desenho acontece neste canvas, o único filho do painel
+        this.canvas = new Canvas(graphPane.getPrefWidth(), graphPane.getPrefHeight());
+        graphPane.getChildren().setAll(canvas);
+
+        setupLegend(); // Pinta cada linha da legenda com a cor da sua função
         setupZoom(); // Ajusta a direção do zoom e a velocidade
         setupPanning(); // Novo método para arrastar o gráfico
         redraw(); // Desenhar os eixos e o gráfico inicial
     }
 
+    // Uma função do gráfico: sua cor, a forma compilada, a última curva recebida e os blocos em cache
+    private static final class PlottedFunction {
+        private final String function;
+        // Nome e cor seguem a posição na legenda, que muda quando uma função anterior sai
+        private String name;
+        private Color color;
+        private final List<String> parameters;
+        private final TileCache tileCache = new TileCache();
+        private CompiledExpression expression;
+        // A função não compila: fica fora do gráfico e da legenda
+        private boolean invalid;
+        // A última amostragem gerou erro: fica fora da legenda
+        private boolean failed;
+        private PlotSampler.Samples latestSamples;
+
+        PlottedFunction(String function) {
+            this.function = function;
+            List<String> detected;
+            try {
+                detected = detectParameters(function);
+            } catch (ExpressionException e) {
+                System.err.println("Erro ao plotar a função: " + e.getMessage());
+                detected = Collections.emptyList();
+                invalid = true;
+            }
+            this.parameters = detected;
+        }
+
+        void placeAt(int index) {
+            name = functionName(index);
+            color = PALETTE[index % PALETTE.length];
+        }
+    }
+
+    private void setupLegend() {
+        legendListView.setCellFactory(list -> new ListCell<String>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : item);
+                setTextFill(empty ? null : legendColors.getOrDefault(item, Color.BLACK));
+            }
+        });
+    }
+
     private void setupZoom() {
         graphPane.setOnScroll((ScrollEvent event) -> {
             double zoomFactor = ZOOM_FACTOR;
@@ -83,7 +193,7 @@ public class GraphPlotter {
             yMin = newYMin;
             yMax = newYMax;
 
-            redraw(); // Redesenha o gráfico com os novos limites
+            redrawScheduler.requestRedraw(); // Redesenha o gráfico com os novos limites no próximo pulso
             event.consume();
         });
     }
@@ -123,7 +233,7 @@ public class GraphPlotter {
             dragLastX = dragX;
             dragLastY = dragY;
 
-            redraw();
+            redrawScheduler.requestRedraw();
             event.consume();
         });
 
@@ -134,99 +244,293 @@ public class GraphPlotter {
         });
     }
 
+    /**
+     * @return O agendador de redesenhos de zoom, arrasto e sliders (com as contagens de quadros agrupados).
+     */
+    public RedrawScheduler getRedrawScheduler() {
+        return redrawScheduler;
+    }
+
+    /**
+     * @return O amostrador em segundo plano (com as contagens de amostragens canceladas e descartadas).
+     */
+    public PlotSampler getPlotSampler() {
+        return plotSampler;
+    }
+
+    /**
+     * @return A última curva recebida da primeira função, com as avaliações gastas e as da
+     *         amostragem de passo fixo, ou {@code null} se ainda não há curva.
+     */
+    public PlotSampler.Samples getLatestSamples() {
+        return getLatestSamples(0);
+    }
+
+    /**
+     * @return A última curva recebida da função {@code index}, ou {@code null} se ainda não há curva.
+     */
+    public PlotSampler.Samples getLatestSamples(int index) {
+        return index < functions.size() ? functions.get(index).latestSamples : null;
+    }
+
+    /**
+     * @return O cache de blocos da primeira função, usado sem amostragem adaptativa.
+     */
+    public TileCache getTileCache() {
+        return getTileCache(0);
+    }
+
+    /**
+     * @return O cache de blocos da função {@code index}, ou {@code null} se ela não existe.
+     */
+    public TileCache getTileCache(int index) {
+        return index < functions.size() ? functions.get(index).tileCache : null;
+    }
+
+    public boolean isAdaptiveSampling() {
+        return adaptiveSampling;
+    }
+
+    /**
+     * Liga ou desliga a amostragem adaptativa ({@link AdaptiveSampler}) e reamostra a curva.
+     */
+    public void setAdaptiveSampling(boolean adaptiveSampling) {
+        this.adaptiveSampling = adaptiveSampling;
+        samplesStale = true;
+        redrawScheduler.requestRedraw();
+    }
+
+    /**
+     * Redesenha imediatamente o gráfico; a legenda é atualizada quando as curvas amostradas chegarem.
+     */
     public void redraw() {
-        graphPane.getChildren().clear(); // Limpa tudo, incluindo os eixos
-        drawAxes(); // Desenha os eixos novamente
+        legendPending = true;
+        if (!render()) {
+            legendPending = false;
+        }
+    }
 
-        if (currentFunction != null && !currentFunction.isEmpty()) {
-            try {
-                // Cria uma única instância do avaliador
-                this.currentEvaluator = new FunctionEvaluator(currentFunction);
-                plotFunction(currentFunction);
-            } catch (ExpressionException e) {
-                System.err.println("Erro ao plotar a função: " + e.getMessage());
+    // Pinta eixos e curvas no canvas; retorna true se alguma função tem curva (já recebida ou a caminho)
+    private boolean render() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight()); // Limpa tudo, incluindo os eixos
+        drawAxes(gc); // Desenha os eixos novamente
+
+        List<PlottedFunction> plotted = compiledFunctions();
+        if (plotted.isEmpty()) {
+            return false;
+        }
+        requestSamples(plotted);
+        drawCurves(gc, plotted);
+        return true;
+    }
+
+    // Funções que compilam, na ordem da legenda
+    private List<PlottedFunction> compiledFunctions() {
+        List<PlottedFunction> plotted = new ArrayList<>();
+        for (PlottedFunction f : functions) {
+            // A expressão só é recompilada quando a função muda (ver plotGraphs);
+            // sem parâmetros, a forma compilada vem do cache compartilhado.
+            if (f.expression == null && !f.invalid) {
+                try {
+                    f.expression = compile(f);
+                } catch (ExpressionException e) {
+                    System.err.println("Erro ao plotar a função: " + e.getMessage());
+                    f.invalid = true;
+                }
+            }
+            if (!f.invalid) {
+                plotted.add(f);
             }
         }
+        return plotted;
+    }
+
+    // Pede a amostragem da janela atual, se ela ou os parâmetros mudaram desde o último pedido;
+    // todas as funções vão no mesmo pedido e são amostradas nos mesmos x
+    private void requestSamples(List<PlottedFunction> plotted) {
+        if (adaptiveSampling) {
+            // A amostragem adaptativa depende da escala vertical, mas não da posição
+            double yScale = graphPane.getPrefHeight() / (yMax - yMin);
+            if (!samplesStale && requestedXMin == xMin && requestedXMax == xMax && requestedYScale == yScale) {
+                return; // Ex: arrasto só na vertical
+            }
+            requestedXMin = xMin;
+            requestedXMax = xMax;
+            requestedYScale = yScale;
+            samplesStale = false;
+            double xScale = graphPane.getPrefWidth() / (xMax - xMin);
+            plotSampler.sample(expressionsOf(plotted), parameters, xMin, xMax, adaptiveSampler, xScale, yScale,
+                               samples -> onSamples(plotted, samples), this::onSamplingError);
+            return;
+        }
+        // Blocos da janela no nível de zoom atual; ao arrastar, só os que entram precisam ser amostrados
+        int level = tileLevel();
+        long fromTile = firstTile(level);
+        long toTile = lastTile(level) + 1;
+        long missingFrom = toTile;
+        long missingTo = fromTile;
+        List<PlottedFunction> missing = new ArrayList<>();
+        for (PlottedFunction f : plotted) {
+            boolean complete = true;
+            for (long t = fromTile; t < toTile; t++) {
+                if (!f.tileCache.contains(level, t)) {
+                    missingFrom = Math.min(missingFrom, t);
+                    missingTo = Math.max(missingTo, t + 1);
+                    complete = false;
+                }
+            }
+            if (!complete) {
+                missing.add(f);
+            }
+        }
+        if (missing.isEmpty()) {
+            // A janela inteira sai do cache, sem avaliar nada
+            samplesStale = false;
+            if (legendPending) {
+                legendPending = false;
+                updateLegend();
+            }
+            return;
+        }
+        if (!samplesStale && requestedLevel == level && requestedFromTile == missingFrom && requestedToTile == missingTo) {
+            return;
+        }
+        requestedLevel = level;
+        requestedFromTile = missingFrom;
+        requestedToTile = missingTo;
+        samplesStale = false;
+        long firstMissing = missingFrom;
+        // Só as funções com blocos faltando, todas na faixa que cobre os blocos que faltam a qualquer uma
+        plotSampler.sampleGrid(expressionsOf(missing), parameters, TileCache.stepOf(level),
+                               missingFrom * TileCache.TILE_SIZE, missingTo * TileCache.TILE_SIZE,
+                               samples -> onTiles(level, firstMissing, missing, samples), this::onSamplingError);
+    }
+
+    private static List<CompiledExpression> expressionsOf(List<PlottedFunction> plotted) {
+        List<CompiledExpression> expressions = new ArrayList<>();
+        for (PlottedFunction f : plotted) {
+            expressions.add(f.expression);
+        }
+        return expressions;
+    }
+
+    // Nível cuja grade tem entre meio e um pixel de passo
+    private int tileLevel() {
+        return TileCache.levelFor((xMax - xMin) / graphPane.getPrefWidth());
+    }
+
+    // Primeiro e último bloco da janela, com uma amostra além de cada borda
+    private long firstTile(int level) {
+        return TileCache.tileOf((long) Math.floor(xMin / TileCache.stepOf(level)));
+    }
+
+    private long lastTile(int level) {
+        return TileCache.tileOf((long) Math.ceil(xMax / TileCache.stepOf(level)));
+    }
+
+    // Guarda os blocos amostrados de cada função e segue como qualquer curva recebida
+    private void onTiles(int level, long firstTile, List<PlottedFunction> targets, List<PlotSampler.Samples> results) {
+        for (int i = 0; i < targets.size(); i++) {
+            PlotSampler.Samples samples = results.get(i);
+            if (samples == null) {
+                continue; // Erro já informado; os blocos que a função tinha continuam valendo
+            }
+            for (int t = 0; t * TileCache.TILE_SIZE < samples.size(); t++) {
+                double[] tile = new double[TileCache.TILE_SIZE];
+                for (int j = 0; j < TileCache.TILE_SIZE; j++) {
+                    tile[j] = samples.y(t * TileCache.TILE_SIZE + j);
+                }
+                targets.get(i).tileCache.put(level, firstTile + t, tile);
+            }
+        }
+        onSamples(targets, results);
+    }
+
+    // Chamado na thread do JavaFX, só para o pedido mais recente; results segue a ordem de targets
+    private void onSamples(List<PlottedFunction> targets, List<PlotSampler.Samples> results) {
+        for (int i = 0; i < targets.size(); i++) {
+            PlottedFunction f = targets.get(i);
+            f.latestSamples = results.get(i);
+            f.failed = f.latestSamples == null;
+        }
+        if (legendPending) {
+            legendPending = false;
+            updateLegend();
+        }
+        redrawScheduler.requestRedraw();
+    }
+
+    // Chega antes das curvas do mesmo pedido (ver onSamples), uma vez por função com erro
+    private void onSamplingError(ExpressionException e) {
+        System.err.println("Erro ao plotar a função: " + e.getMessage());
     }
     
     // Método para desenhar os eixos X e Y
-    private void drawAxes() {
+    private void drawAxes(GraphicsContext gc) {
         double width = graphPane.getPrefWidth();
         double height = graphPane.getPrefHeight();
 
+        gc.setStroke(Color.GRAY);
+        gc.setLineWidth(1);
+        gc.setFill(Color.BLACK);
+        gc.setFont(LABEL_FONT);
+
         // Eixo Y
         double xAxisCenter = mapValue(0, xMin, xMax, 0, width);
-        Line yAxis = new Line(xAxisCenter, 0, xAxisCenter, height);
-        yAxis.setStroke(Color.GRAY);
+        gc.strokeLine(xAxisCenter, 0, xAxisCenter, height);
 
         // Eixo X
         double yAxisCenter = mapValue(0, yMin, yMax, height, 0);
-        Line xAxis = new Line(0, yAxisCenter, width, yAxisCenter);
-        xAxis.setStroke(Color.GRAY);
-
-        graphPane.getChildren().addAll(xAxis, yAxis);
+        gc.strokeLine(0, yAxisCenter, width, yAxisCenter);
         
+        gc.setTextAlign(TextAlignment.CENTER);
         double xTickSpacing = getTickSpacing(xMax - xMin);
         for (double val = 0; val < xMax; val += xTickSpacing) {
-            drawXAxisTick(val);
+            drawXAxisTick(gc, val, xAxisCenter, yAxisCenter);
         }
         for (double val = -xTickSpacing; val > xMin; val -= xTickSpacing) {
-            drawXAxisTick(val);
+            drawXAxisTick(gc, val, xAxisCenter, yAxisCenter);
         }
 
         // Marcadores do Eixo Y
+        gc.setTextAlign(TextAlignment.LEFT);
         double yTickSpacing = getTickSpacing(yMax - yMin);
         for (double val = 0; val < yMax; val += yTickSpacing) {
-            drawYAxisTick(val);
+            drawYAxisTick(gc, val, xAxisCenter, yAxisCenter);
         }
         for (double val = -yTickSpacing; val > yMin; val -= yTickSpacing) {
-            drawYAxisTick(val);
+            drawYAxisTick(gc, val, xAxisCenter, yAxisCenter);
         }
     }
     
-    private void drawXAxisTick(double value) {
-        double width = graphPane.getPrefWidth();
-        double height = graphPane.getPrefHeight();
-        double xPane = mapValue(value, xMin, xMax, 0, width);
-        double yAxisCenter = mapValue(0, yMin, yMax, height, 0);
+    private void drawXAxisTick(GraphicsContext gc, double value, double xAxisCenter, double yAxisCenter) {
+        double xPane = mapValue(value, xMin, xMax, 0, graphPane.getPrefWidth());
 
-        Line tick = new Line(xPane, yAxisCenter - 5, xPane, yAxisCenter + 5);
-        tick.setStroke(Color.GRAY);
-        graphPane.getChildren().add(tick);
+        gc.strokeLine(xPane, yAxisCenter - 5, xPane, yAxisCenter + 5);
         if (Math.abs(value) > 0.0001) { // Evita desenhar o rótulo "0" duas vezes
             String tam = "%.2f";
             if((xMax-xMin) < 0.08){
                 tam="%.3f";
             }
-            Text label = new Text(String.format(tam, value));
-            label.setFont(new Font(8));
-            label.setLayoutX(xPane - label.getLayoutBounds().getWidth() / 2);
-            label.setLayoutY(yAxisCenter + 20); // Posição abaixo do eixo
-            graphPane.getChildren().add(label);
+            // Centralizado no marcador, abaixo do eixo
+            gc.fillText(String.format(tam, value), xPane, yAxisCenter + 20);
         }
     }
 
     // Novo método auxiliar para desenhar um marcador no eixo Y
-    private void drawYAxisTick(double value) {
-        double width = graphPane.getPrefWidth();
-        double height = graphPane.getPrefHeight();
-        double yPane = mapValue(value, yMin, yMax, height, 0);
-        double xAxisCenter = mapValue(0, xMin, xMax, 0, width);
+    private void drawYAxisTick(GraphicsContext gc, double value, double xAxisCenter, double yAxisCenter) {
+        double yPane = mapValue(value, yMin, yMax, graphPane.getPrefHeight(), 0);
 
-        Line tick = new Line(xAxisCenter - 5, yPane, xAxisCenter + 5, yPane);
-        tick.setStroke(Color.GRAY);
-        graphPane.getChildren().add(tick);
+        gc.strokeLine(xAxisCenter - 5, yPane, xAxisCenter + 5, yPane);
 
         if (Math.abs(value) > 0.0001) {
             String tam = "%.2f";
             if((yMax-yMin) < 0.08){
                 tam="%.3f";
             }
-            Text label = new Text(String.format(tam, value));
-            label.setFont(new Font(8));
-            label.setLayoutX(xAxisCenter - 25); // Posição à esquerda do eixo
-            label.setLayoutY(yPane + label.getLayoutBounds().getHeight() / 4);
-            graphPane.getChildren().add(label);
+            // À esquerda do eixo, com a linha de base um pouco abaixo do marcador
+            gc.fillText(String.format(tam, value), xAxisCenter - 25, yPane + LABEL_FONT.getSize() / 3);
         }
     }
 
@@ -247,37 +551,257 @@ public class GraphPlotter {
     }
 
     /**
-     * Plota o gráfico de uma função matemática.
+     * Plota o gráfico de uma função matemática, no lugar das funções já plotadas.
      * @param function A expressão da função, por exemplo, "x^2".
      */
     public void plotGraph(String function) {
-        this.currentFunction = function; // Armazena a função atual
+        plotGraphs(Collections.singletonList(function));
+    }
+
+    /**
+     * Plota várias funções sobrepostas, no lugar das já plotadas: cada uma recebe uma cor e um
+     * nome na legenda (f, g, h...), na ordem da lista. Funções repetidas ou vazias são ignoradas.
+     */
+    public void plotGraphs(List<String> functionList) {
+        List<PlottedFunction> previous = new ArrayList<>(functions);
+        functions.clear();
+        for (String function : functionList) {
+            addFunction(function, previous);
+        }
+        functionsChanged();
+    }
+
+    /**
+     * Acrescenta uma função às já plotadas, com a próxima cor, mantendo as curvas das demais.
+     */
+    public void addGraph(String function) {
+        addFunction(function, Collections.<PlottedFunction>emptyList());
+        functionsChanged();
+    }
+
+    /**
+     * Remove todas as funções do gráfico, deixando só os eixos.
+     */
+    public void clearGraphs() {
+        plotGraphs(Collections.<String>emptyList());
+        legendListView.getItems().clear();
+    }
+
+    /**
+     * @return As funções plotadas, na ordem da legenda.
+     */
+    public List<String> getFunctions() {
+        List<String> list = new ArrayList<>();
+        for (PlottedFunction f : functions) {
+            list.add(f.function);
+        }
+        return list;
+    }
+
+    // Uma função que já estava em previous volta com a forma compilada, os blocos e a última curva
+    private void addFunction(String function, List<PlottedFunction> previous) {
+        if (function == null || function.trim().isEmpty() || getFunctions().contains(function)) {
+            return;
+        }
+        PlottedFunction plotted = null;
+        for (PlottedFunction f : previous) {
+            if (f.function.equals(function)) {
+                plotted = f;
+                break;
+            }
+        }
+        if (plotted == null) {
+            plotted = new PlottedFunction(function);
+        }
+        plotted.placeAt(functions.size());
+        functions.add(plotted);
+    }
+
+    // Funções novas começam sem curva nem blocos; as que continuam mantêm os seus
+    private void functionsChanged() {
+        // Curvas de pedidos anteriores não devem chegar atrasadas
+        samplesStale = true;
+        plotSampler.cancel();
+        // O amostrador esquece as amostras guardadas das funções que saíram do gráfico
+        List<CompiledExpression> kept = new ArrayList<>();
+        for (PlottedFunction f : functions) {
+            if (f.expression != null) {
+                kept.add(f.expression);
+            }
+        }
+        plotSampler.retain(kept);
+        // Parâmetros que continuam em alguma função mantêm o valor; os novos começam em 1
+        Map<String, Double> previous = new LinkedHashMap<>(parameters);
+        parameters.clear();
+        for (PlottedFunction f : functions) {
+            for (String name : f.parameters) {
+                parameters.putIfAbsent(name, previous.getOrDefault(name, DEFAULT_PARAMETER));
+            }
+        }
         redraw();
     }
-    
-    private void plotFunction(String function) {
-        Polyline polyline = new Polyline();
-        polyline.setStroke(Color.BLUE);
-        polyline.setStrokeWidth(2);
 
-        double width = graphPane.getPrefWidth();
-        double height = graphPane.getPrefHeight();
-        // Novo: passo de plotagem
-        double plotStep = 1.0;
+    /**
+     * @return Os parâmetros das funções plotadas e seus valores, na ordem em que aparecem.
+     */
+    public Map<String, Double> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
 
-        for (double xPane = 0; xPane <= width; xPane += plotStep) {
-            double xGraph = mapValue(xPane, 0, width, xMin, xMax);
-            double yGraph = this.currentEvaluator.evaluate(xGraph);
-            double yPane = mapValue(yGraph, yMin, yMax, height, 0);
+    /**
+     * Muda o valor de um parâmetro e repinta o canvas no próximo pulso: a expressão não é
+     * recompilada, a janela atual é reamostrada e a legenda não é recalculada (ex: sliders).
+     */
+    public void setParameter(String name, double value) {
+        if (!parameters.containsKey(name)) {
+            throw new IllegalArgumentException("Parâmetro desconhecido: '" + name + "'");
+        }
+        parameters.put(name, value);
+        // Uma amostragem em andamento usa o valor anterior: seus blocos não podem voltar ao cache
+        plotSampler.cancel();
+        for (PlottedFunction f : functions) {
+            if (f.parameters.contains(name)) {
+                f.tileCache.clear(); // Os blocos são do valor anterior
+            }
+        }
+        samplesStale = true;
+        redrawScheduler.requestRedraw();
+    }
+
+    private static CompiledExpression compile(PlottedFunction f) {
+        if (f.parameters.isEmpty()) {
+            return CompiledExpressionCache.shared().get(f.function);
+        }
+        // x ocupa o slot 0 e cada parâmetro um slot próprio, que o amostrador preenche a cada pedido
+        List<String> variables = new ArrayList<>();
+        variables.add("x");
+        variables.addAll(f.parameters);
+        return CompiledExpression.compile(f.function, variables.toArray(new String[0]));
+    }
 
-            // Adiciona o ponto, verificando se é um número válido para evitar falhas
-            if (!Double.isNaN(yPane) && !Double.isInfinite(yPane)) {
-                polyline.getPoints().addAll(xPane, yPane);
+    /**
+     * @return O nome da função {@code index} na legenda: f, g, h... e depois f11, f12...
+     */
+    static String functionName(int index) {
+        return index < NAMES.length ? NAMES[index] : "f" + (index + 1);
+    }
+
+    /**
+     * Letras isoladas usadas como valor (sem abre parênteses em seguida) são parâmetros da
+     * função, como {@code a}, {@code b} e {@code c} em {@code a*x^2 + b*x + c}.
+     *
+     * @throws ExpressionException Se uma palavra usada como valor não for um parâmetro: uma
+     *                             função sem parênteses (ex: {@code sin*x}) ou um nome desconhecido,
+     *                             como um erro de digitação ({@code sinx}), que não vira slider.
+     */
+    public static List<String> detectParameters(String function) {
+        List<Token> tokens;
+        try {
+            tokens = new ExpressionParser().tokenize(function);
+        } catch (ExpressionException e) {
+            // A compilação reporta o erro
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            boolean call = i + 1 < tokens.size() && tokens.get(i + 1).getValue().equals("(");
+            if (token.getType() != TokenType.FUNCTION || call) {
+                continue;
+            }
+            String name = token.getValue();
+            if (name.length() > 1) {
+                if (Opcode.forFunction(name) >= 0) {
+                    throw new ExpressionException("A função '" + name + "' precisa de parênteses.");
+                }
+                throw new ExpressionException("Nome desconhecido: '" + name + "'. Parâmetros são letras isoladas (ex: a, b, c).");
+            }
+            if (!names.contains(name)) {
+                names.add(name);
             }
         }
-        
-        graphPane.getChildren().add(polyline);
-        addToLegend(function);
+        return names;
+    }
+
+    // Pinta cada curva da janela atual, na cor da sua função: a última amostragem adaptativa
+    // recebida ou os blocos em cache
+    private void drawCurves(GraphicsContext gc, List<PlottedFunction> plotted) {
+        gc.setLineWidth(2);
+        for (PlottedFunction f : plotted) {
+            gc.setStroke(f.color);
+            curve.reset();
+            if (!adaptiveSampling) {
+                drawTiles(gc, f.tileCache);
+            } else if (f.latestSamples != null) { // Senão, a primeira amostragem ainda não chegou
+                PlotSampler.Samples samples = f.latestSamples;
+                for (int i = 0; i < samples.size(); i++) {
+                    addCurvePoint(gc, samples.x(i), samples.y(i));
+                }
+            }
+            strokeCurve(gc);
+        }
+    }
+
+    // Monta a curva bloco a bloco; um bloco ausente usa um nível vizinho ou fica como lacuna
+    private void drawTiles(GraphicsContext gc, TileCache tileCache) {
+        int level = tileLevel();
+        double step = TileCache.stepOf(level);
+        for (long t = firstTile(level); t <= lastTile(level); t++) {
+            double[] tile = tileCache.get(level, t);
+            if (tile != null) {
+                for (int j = 0; j < TileCache.TILE_SIZE; j++) {
+                    addCurvePoint(gc, (t * TileCache.TILE_SIZE + j) * step, tile[j]);
+                }
+            } else if (!drawFallback(gc, tileCache, level, t)) {
+                strokeCurve(gc);
+            }
+        }
+    }
+
+    // Desenha o trecho do bloco t do nível com as amostras de um nível vizinho, se houver
+    private boolean drawFallback(GraphicsContext gc, TileCache tileCache, int level, long t) {
+        for (int delta : FALLBACK_LEVELS) {
+            int other = level + delta;
+            double otherStep = TileCache.stepOf(other);
+            // Amostras do outro nível dentro de [t * TILE_SIZE, (t + 1) * TILE_SIZE) do nível atual
+            long from = (long) Math.ceil(Math.scalb((double) (t * TileCache.TILE_SIZE), delta));
+            long to = (long) Math.ceil(Math.scalb((double) ((t + 1) * TileCache.TILE_SIZE), delta));
+            boolean drawn = false;
+            for (long k = from; k < to; k++) {
+                double[] tile = tileCache.get(other, TileCache.tileOf(k));
+                if (tile == null) {
+                    // Pula o restante desse bloco do outro nível
+                    k = (TileCache.tileOf(k) + 1) * TileCache.TILE_SIZE - 1;
+                    continue;
+                }
+                addCurvePoint(gc, k * otherStep, tile[(int) Math.floorMod(k, (long) TileCache.TILE_SIZE)]);
+                drawn = true;
+            }
+            if (drawn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addCurvePoint(GraphicsContext gc, double x, double y) {
+        double xPane = mapValue(x, xMin, xMax, 0, graphPane.getPrefWidth());
+        double yPane = mapValue(y, yMin, yMax, graphPane.getPrefHeight(), 0);
+
+        // Adiciona o ponto, verificando se é um número válido para evitar falhas
+        if (!Double.isNaN(yPane) && !Double.isInfinite(yPane)) {
+            curve.add(xPane, yPane);
+        } else {
+            // Ponto fora do domínio ou com erro (ex: 1/x em x = 0): a curva é interrompida aqui
+            strokeCurve(gc);
+        }
+    }
+
+    // Pinta os pontos acumulados como uma poligonal e recomeça
+    private void strokeCurve(GraphicsContext gc) {
+        curve.flush();
+        gc.strokePolyline(curve.xs(), curve.ys(), curve.size());
+        curve.reset();
     }
 
     // Mapeia um valor de um intervalo para outro
@@ -285,18 +809,32 @@ public class GraphPlotter {
         return (value - inMin) * (outMax - outMin) / (inMax - inMin) + outMin;
     }
     
-    // Adiciona a função à legenda
-    private void addToLegend(String function) {
+    // Refaz a legenda com as funções plotadas, cada uma na sua cor
+    private void updateLegend() {
         legendListView.getItems().clear(); // Limpa a legenda antes de adicionar
-        legendListView.getItems().add("f(x) = " + function);
-         List<String> results = new ArrayList<>();
-        results = calcularRaizes(function);
+        legendColors.clear();
+        for (PlottedFunction f : functions) {
+            if (!f.invalid && !f.failed) {
+                addToLegend(f);
+            }
+        }
+    }
+
+    // Adiciona a função à legenda
+    private void addToLegend(PlottedFunction f) {
+        String name = f.name + "(x)";
+        List<String> entries = new ArrayList<>();
+        entries.add(name + " = " + f.function);
+        List<String> results = calcularRaizes(f.function);
         if(results.isEmpty()){
-            legendListView.getItems().add("Raizes de f(x) = [Não possuem]");
+            entries.add("Raizes de " + name + " = [Não possuem]");
         }else{
-            legendListView.getItems().add("Raizes de f(x) = "+results);
+            entries.add("Raizes de " + name + " = "+results);
         }
-        
+        for (String entry : entries) {
+            legendColors.put(entry, f.color);
+        }
+        legendListView.getItems().addAll(entries);
     }
     private List<String> calcularRaizes(String function){
         String regex = "^\\s*" +
@@ -0,0 +1,140 @@
+package calcgraph.model;
+
+import java.util.Arrays;
+
+/**
+ * Redução M4 de uma poligonal para a resolução da tela: de cada coluna de pixels, guarda só a
+ * primeira e a última amostra e as de menor e maior y, na ordem em que aparecem.
+ *
+ * Dentro de uma coluna, a linha desenhada cobre exatamente a faixa vertical entre o menor e o
+ * maior y, e as ligações com as colunas vizinhas saem da primeira e da última amostra; essas
+ * quatro bastam para pintar os mesmos pixels. Assim, uma curva amostrada muito acima da
+ * resolução (funções de alta frequência, {@code sin(1/x)} perto de 0) chega ao
+ * {@code strokePolyline} com no máximo 4 pontos por coluna.
+ *
+ * Os pontos chegam em coordenadas do painel ({@link #add}), com x não decrescente; o resultado
+ * fica em {@link #xs()} e {@link #ys()}, reaproveitados entre quadros.
+ */
+public final class M4Decimator {
+
+    private double[] xs = new double[1024];
+    private double[] ys = new double[1024];
+    private int size;
+
+    // Coluna em andamento: primeira, menor, maior e última amostra, com a ordem de chegada
+    private long column = Long.MIN_VALUE;
+    private int pending;
+    private double firstX;
+    private double firstY;
+    private double minX;
+    private double minY;
+    private int minOrder;
+    private double maxX;
+    private double maxY;
+    private int maxOrder;
+    private double lastX;
+    private double lastY;
+
+    private long added;
+
+    /**
+     * Acrescenta uma amostra; a coluna anterior é fechada quando a amostra cai em outra coluna.
+     */
+    public void add(double x, double y) {
+        added++;
+        long c = (long) Math.floor(x);
+        if (c != column) {
+            flush();
+            column = c;
+            firstX = minX = maxX = x;
+            firstY = minY = maxY = y;
+            minOrder = maxOrder = 0;
+        } else {
+            if (y < minY) {
+                minX = x;
+                minY = y;
+                minOrder = pending;
+            }
+            if (y > maxY) {
+                maxX = x;
+                maxY = y;
+                maxOrder = pending;
+            }
+        }
+        lastX = x;
+        lastY = y;
+        pending++;
+    }
+
+    /**
+     * Fecha a coluna em andamento (ex: antes de uma lacuna na curva).
+     */
+    public void flush() {
+        if (pending == 0) {
+            return;
+        }
+        int last = pending - 1;
+        emit(firstX, firstY);
+        // Menor e maior na ordem de chegada, sem repetir a primeira nem a última amostra
+        boolean minFirst = minOrder <= maxOrder;
+        emitInner(minFirst ? minOrder : maxOrder, minFirst ? minX : maxX, minFirst ? minY : maxY, last);
+        if (minOrder != maxOrder) {
+            emitInner(minFirst ? maxOrder : minOrder, minFirst ? maxX : minX, minFirst ? maxY : minY, last);
+        }
+        if (last > 0) {
+            emit(lastX, lastY);
+        }
+        pending = 0;
+        column = Long.MIN_VALUE;
+    }
+
+    private void emitInner(int order, double x, double y, int last) {
+        if (order != 0 && order != last) {
+            emit(x, y);
+        }
+    }
+
+    private void emit(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, 2 * size);
+            ys = Arrays.copyOf(ys, 2 * size);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    /**
+     * Descarta os pontos já reduzidos e a coluna em andamento, mantendo os vetores.
+     */
+    public void reset() {
+        size = 0;
+        pending = 0;
+        column = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return Os x dos pontos reduzidos; só os {@link #size()} primeiros valem.
+     */
+    public double[] xs() {
+        return xs;
+    }
+
+    /**
+     * @return Os y dos pontos reduzidos; só os {@link #size()} primeiros valem.
+     */
+    public double[] ys() {
+        return ys;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Amostras recebidas por {@link #add} desde a criação.
+     */
+    public long getAddedCount() {
+        return added;
+    }
+}
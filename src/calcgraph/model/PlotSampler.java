@@ -0,0 +1,438 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * Amostra curvas fora da thread do JavaFX.
+ *
+ * Um pedido pode ter várias funções (gráficos sobrepostos): todas são amostradas na mesma
+ * grade de x, em paralelo entre si, e publicadas juntas. Cada função guarda na thread de
+ * amostragem seu próprio avaliador e suas amostras já calculadas ({@link SampleRing}).
+ *
+ * Cada pedido ({@link #sample}) recebe um número de geração crescente. A amostragem roda em
+ * uma thread de fundo, em blocos, e é abandonada assim que um pedido mais novo chega (ex: o
+ * usuário continuou arrastando). O resultado é publicado de volta na thread do JavaFX e
+ * descartado se, nesse meio tempo, outro pedido tiver sido feito: só a janela de
+ * visualização mais recente chega à tela.
+ *
+ * {@link #sample} e {@link #cancel} devem ser chamados sempre da mesma thread (a do JavaFX).
+ */
+public class PlotSampler {
+
+    // Pontos avaliados entre duas verificações de cancelamento
+    static final int CHUNK = 1024;
+
+    private final Executor executor;
+    private final Executor publisher;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Paraleliza um pedido entre as suas funções
+    private final ForkJoinPool pool;
+
+    // Usado só pela thread de amostragem (as tarefas rodam uma por vez): o estado das
+    // funções já pedidas, até que saiam do gráfico (ver retain)
+    private final Map<CompiledExpression, Track> tracks = new IdentityHashMap<>();
+
+    /**
+     * Amostra em uma thread de fundo própria e publica com {@link Platform#runLater}.
+     */
+    public PlotSampler() {
+        this(backgroundSampler(), Platform::runLater);
+    }
+
+    /**
+     * @param executor Onde as amostragens rodam; deve executar uma tarefa por vez.
+     * @param publisher Onde os resultados são entregues (a thread da interface).
+     */
+    PlotSampler(Executor executor, Executor publisher) {
+        this.executor = executor;
+        this.publisher = publisher;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    private static Executor backgroundSampler() {
+        return Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "calcgraph-plot-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Curva amostrada em {@code [xMin, xMax]}: pontos igualmente espaçados ou, na amostragem
+     * adaptativa, mais densos onde a curva vira.
+     */
+    public static final class Samples {
+        private final long generation;
+        private final double xMin;
+        private final double xMax;
+        private final double[] xs;
+        private final double[] ys;
+        private final int evaluations;
+        private final int fixedStepEvaluations;
+
+        Samples(long generation, double xMin, double xMax, double[] xs, double[] ys,
+                int evaluations, int fixedStepEvaluations) {
+            this.generation = generation;
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.xs = xs;
+            this.ys = ys;
+            this.evaluations = evaluations;
+            this.fixedStepEvaluations = fixedStepEvaluations;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public double getXMin() {
+            return xMin;
+        }
+
+        public double getXMax() {
+            return xMax;
+        }
+
+        public int size() {
+            return ys.length;
+        }
+
+        public double x(int i) {
+            return xs[i];
+        }
+
+        public double y(int i) {
+            return ys[i];
+        }
+
+        /**
+         * @return Avaliações feitas para obter esta curva (sem contar amostras reaproveitadas).
+         */
+        public int getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * @return Avaliações que a amostragem de passo fixo de 1 pixel faria na mesma janela.
+         */
+        public int getFixedStepEvaluations() {
+            return fixedStepEvaluations;
+        }
+    }
+
+    // Amostragem de uma função feita pela thread de fundo; retorna null se foi cancelada no meio
+    private interface Job {
+        Samples run(Track track, long generation);
+    }
+
+    // Avaliador e amostras guardadas de uma função; cada um é usado por uma tarefa de cada vez
+    private static final class Track {
+        private final FunctionEvaluator evaluator;
+        private final List<String> parameters;
+        private final SampleRing ring = new SampleRing();
+        private double[] values;
+
+        Track(CompiledExpression expression) {
+            this.evaluator = new FunctionEvaluator(expression);
+            this.parameters = evaluator.getParameters();
+        }
+
+        // Fixa os parâmetros que a função usa; as amostras guardadas só valem para os mesmos valores
+        void setParameters(String[] names, double[] allValues) {
+            double[] own = new double[parameters.size()];
+            for (int i = 0; i < names.length; i++) {
+                int slot = parameters.indexOf(names[i]);
+                if (slot >= 0) {
+                    own[slot] = allValues[i];
+                    evaluator.setParameter(names[i], allValues[i]);
+                }
+            }
+            if (!Arrays.equals(own, values)) {
+                values = own;
+                ring.clear();
+            }
+        }
+    }
+
+    /**
+     * Agenda a amostragem das funções nos pontos {@code x = k * step}, {@code from <= k < to}, e torna
+     * obsoletos todos os pedidos anteriores. A grade é ancorada em coordenadas do gráfico: ao arrastar,
+     * as amostras que continuam na janela são reaproveitadas ({@link SampleRing}) e só a faixa
+     * recém-exposta é avaliada.
+     *
+     * @param parameters Valores dos parâmetros das expressões (copiados antes de sair da thread atual);
+     *                   cada função recebe só os que usa.
+     * @param onSamples Recebe as curvas, na ordem das funções, na thread da interface, se este ainda for
+     *                  o pedido mais recente. A curva de uma função que gerou erro é {@code null}.
+     * @param onError Recebe o erro de cada função que falhou, nas mesmas condições e antes das curvas.
+     * @return A geração do pedido.
+     */
+    public long sampleGrid(List<CompiledExpression> expressions, Map<String, Double> parameters,
+                           double step, long from, long to,
+                           Consumer<List<Samples>> onSamples, Consumer<ExpressionException> onError) {
+        if (!(step > 0) || to < from) {
+            throw new IllegalArgumentException("Grade inválida: passo " + step + ", amostras [" + from + ", " + to + ")");
+        }
+        int samples = Math.toIntExact(to - from);
+        // A mesma grade para todas as funções
+        double[] xs = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            xs[i] = (from + i) * step;
+        }
+        return submit(expressions, parameters, onSamples, onError, (track, job) -> {
+            if (!track.ring.cover(track.evaluator, step, from, to, CHUNK, () -> job != generation.get())) {
+                return null;
+            }
+            double[] ys = new double[samples];
+            track.ring.copy(from, to, ys);
+            return new Samples(job, from * step, (to - 1) * step, xs, ys, track.ring.getLastEvaluated(), samples);
+        });
+    }
+
+    /**
+     * {@link #sampleGrid(List, Map, double, long, long, Consumer, Consumer)} de uma única função.
+     */
+    public long sampleGrid(CompiledExpression expression, Map<String, Double> parameters, double step, long from, long to,
+                           Consumer<Samples> onSamples, Consumer<ExpressionException> onError) {
+        return sampleGrid(Collections.singletonList(expression), parameters, step, from, to, single(onSamples), onError);
+    }
+
+    /**
+     * Como {@link #sampleGrid(List, Map, double, long, long, Consumer, Consumer)}, mas com a amostragem
+     * adaptativa do {@code sampler} em {@code [xMin, xMax]}: cada função é refinada onde ela mesma
+     * vira. O cancelamento é verificado a cada nível de divisão.
+     *
+     * @param xScale Pixels por unidade de x.
+     * @param yScale Pixels por unidade de y.
+     */
+    public long sample(List<CompiledExpression> expressions, Map<String, Double> parameters, double xMin, double xMax,
+                       AdaptiveSampler sampler, double xScale, double yScale,
+                       Consumer<List<Samples>> onSamples, Consumer<ExpressionException> onError) {
+        return submit(expressions, parameters, onSamples, onError, (track, job) -> {
+            AdaptiveSampler.Result result = sampler.sample(track.evaluator, xMin, xMax, xScale, yScale,
+                                                           () -> job != generation.get());
+            if (result == null) {
+                return null;
+            }
+            return new Samples(job, xMin, xMax, result.xs(), result.ys(), result.getEvaluations(),
+                               result.getFixedStepEvaluations());
+        });
+    }
+
+    /**
+     * Amostragem adaptativa de uma única função.
+     */
+    public long sample(CompiledExpression expression, Map<String, Double> parameters, double xMin, double xMax,
+                       AdaptiveSampler sampler, double xScale, double yScale,
+                       Consumer<Samples> onSamples, Consumer<ExpressionException> onError) {
+        return sample(Collections.singletonList(expression), parameters, xMin, xMax, sampler, xScale, yScale,
+                      single(onSamples), onError);
+    }
+
+    private static Consumer<List<Samples>> single(Consumer<Samples> onSamples) {
+        return results -> {
+            if (results.get(0) != null) {
+                onSamples.accept(results.get(0));
+            }
+        };
+    }
+
+    private long submit(List<CompiledExpression> expressions, Map<String, Double> parameters,
+                        Consumer<List<Samples>> onSamples, Consumer<ExpressionException> onError, Job work) {
+        long job = generation.incrementAndGet();
+        submitted.incrementAndGet();
+        List<CompiledExpression> functions = new ArrayList<>(expressions);
+        String[] names = parameters.keySet().toArray(new String[0]);
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = parameters.get(names[i]);
+        }
+        executor.execute(() -> run(job, functions, names, values, work, onSamples, onError));
+        return job;
+    }
+
+    /**
+     * Esquece as amostras guardadas das funções que não estão em {@code expressions} (ex: foram
+     * removidas do gráfico). As demais mantêm as suas mesmo que fiquem fora de alguns pedidos,
+     * como os de blocos que só faltam a outra função. Roda na thread de amostragem, depois dos
+     * pedidos já feitos.
+     */
+    public void retain(List<CompiledExpression> expressions) {
+        Set<CompiledExpression> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(expressions);
+        executor.execute(() -> tracks.keySet().retainAll(kept));
+    }
+
+    /**
+     * @return Funções com amostras guardadas na thread de amostragem.
+     */
+    int getTrackCount() {
+        return tracks.size();
+    }
+
+    /**
+     * Torna obsoletos todos os pedidos feitos até agora (ex: a função foi trocada).
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return A geração do pedido mais recente.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    private void run(long job, List<CompiledExpression> expressions, String[] names, double[] values, Job work,
+                     Consumer<List<Samples>> onSamples, Consumer<ExpressionException> onError) {
+        if (job != generation.get()) {
+            cancelled.incrementAndGet();
+            return;
+        }
+        List<Track> current = tracksFor(expressions);
+        int n = current.size();
+        Samples[] results = new Samples[n];
+        ExpressionException[] errors = new ExpressionException[n];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (current.indexOf(current.get(i)) < i) {
+                continue; // Função repetida: amostrada uma vez só
+            }
+            int index = i;
+            tasks.add(() -> {
+                try {
+                    Track track = current.get(index);
+                    track.setParameters(names, values);
+                    results[index] = work.run(track, job);
+                } catch (ExpressionException e) {
+                    errors[index] = e;
+                } catch (RuntimeException e) {
+                    // Ex: fatorial de negativo; todo pedido termina com curvas ou com um erro
+                    errors[index] = new ExpressionException(e.getMessage() != null ? e.getMessage() : e.toString(), e);
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        for (int i = 0; i < n; i++) {
+            int first = current.indexOf(current.get(i));
+            if (results[first] == null && errors[first] == null) {
+                cancelled.incrementAndGet();
+                return;
+            }
+            // O erro de uma função repetida é informado uma vez só
+            results[i] = results[first];
+        }
+        publish(job, () -> {
+            for (ExpressionException error : errors) {
+                if (error != null) {
+                    onError.accept(error);
+                }
+            }
+            onSamples.accept(Arrays.asList(results));
+        });
+    }
+
+    // Uma função roda na própria thread de amostragem; várias, em paralelo no pool
+    private void runAll(List<Callable<Void>> tasks) {
+        try {
+            if (tasks.size() == 1) {
+                tasks.get(0).call();
+                return;
+            }
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na amostragem", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha na amostragem", e);
+        }
+    }
+
+    private void publish(long job, Runnable delivery) {
+        publisher.execute(() -> {
+            if (job != generation.get()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            completed.incrementAndGet();
+            delivery.run();
+        });
+    }
+
+    // Reaproveita o estado das funções já pedidas e cria o das novas; só retain esquece alguma
+    private List<Track> tracksFor(List<CompiledExpression> expressions) {
+        List<Track> current = new ArrayList<>();
+        for (CompiledExpression expression : expressions) {
+            current.add(tracks.computeIfAbsent(expression, Track::new));
+        }
+        return current;
+    }
+
+    /**
+     * @return Pedidos de amostragem recebidos.
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return Curvas (ou erros) entregues à interface.
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return Amostragens abandonadas antes de terminar por causa de um pedido mais novo.
+     */
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return Amostragens que terminaram, mas chegaram à interface depois de um pedido mais novo.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PlotSampler{" +
+               "generation=" + generation.get() +
+               ", submitted=" + submitted.get() +
+               ", completed=" + completed.get() +
+               ", cancelled=" + cancelled.get() +
+               ", dropped=" + dropped.get() +
+               '}';
+    }
+}
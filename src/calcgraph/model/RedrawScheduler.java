@@ -0,0 +1,114 @@
+package calcgraph.model;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Agenda redesenhos para no máximo um por pulso do JavaFX.
+ *
+ * Eventos de rolagem e arrasto podem chegar várias vezes entre dois quadros; cada um só
+ * marca o gráfico como sujo ({@link #requestRedraw()}). Um {@link AnimationTimer} chama o
+ * redesenho no pulso seguinte, uma única vez, com o estado mais recente: as janelas de
+ * visualização intermediárias nunca são desenhadas. O timer só fica ativo enquanto há
+ * redesenho pendente.
+ *
+ * Deve ser usado apenas na thread do JavaFX.
+ */
+public class RedrawScheduler {
+
+    private final Runnable redraw;
+    private AnimationTimer timer;
+    private boolean dirty;
+
+    private long requests;
+    private long redraws;
+    private long skipped;
+
+    /**
+     * @param redraw O desenho de um quadro, executado na thread do JavaFX.
+     */
+    public RedrawScheduler(Runnable redraw) {
+        this.redraw = redraw;
+    }
+
+    /**
+     * Marca o gráfico como sujo. Pedidos feitos antes do próximo pulso são agrupados
+     * em um único redesenho.
+     */
+    public void requestRedraw() {
+        requests++;
+        if (dirty) {
+            skipped++;
+            return;
+        }
+        dirty = true;
+        startPulses();
+    }
+
+    /**
+     * Chamado a cada pulso enquanto o timer está ativo: desenha se houver pedido pendente.
+     */
+    void pulse() {
+        if (!dirty) {
+            stopPulses();
+            return;
+        }
+        dirty = false;
+        redraws++;
+        redraw.run();
+    }
+
+    /**
+     * @return Se há um redesenho esperando o próximo pulso.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return Pedidos de redesenho recebidos.
+     */
+    public long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * @return Redesenhos realmente executados.
+     */
+    public long getRedrawCount() {
+        return redraws;
+    }
+
+    /**
+     * @return Pedidos descartados por já haver um redesenho pendente no mesmo pulso.
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    void startPulses() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    pulse();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    void stopPulses() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RedrawScheduler{" +
+               "requests=" + requests +
+               ", redraws=" + redraws +
+               ", skipped=" + skipped +
+               '}';
+    }
+}
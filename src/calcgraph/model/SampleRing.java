@@ -0,0 +1,157 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Buffer circular com as amostras já calculadas de uma grade ancorada em coordenadas do
+ * gráfico: a amostra {@code k} fica sempre em {@code x = k * step}, qualquer que seja a janela.
+ *
+ * Ao arrastar o gráfico, a janela nova cobre quase as mesmas amostras que a anterior;
+ * {@link #cover} avalia só a faixa recém-exposta, em um dos lados, e descarta as amostras que
+ * saíram pelo outro, sem mover as demais. Como cada amostra depende só de {@code k} e
+ * {@code step}, o resultado é idêntico, bit a bit, ao de avaliar a janela inteira de novo.
+ *
+ * Mudar o passo (zoom), a função ou os parâmetros invalida o buffer ({@link #clear()}).
+ * Não é thread-safe: pertence à thread de amostragem.
+ */
+final class SampleRing {
+
+    private double step = Double.NaN;
+    private double[] ring = new double[0];
+    // Índice k da amostra mais antiga, sua posição em ring e quantas amostras válidas há
+    private long first;
+    private int head;
+    private int count;
+
+    // Vetores de trabalho da avaliação de uma faixa, reaproveitados entre chamadas
+    private double[] stripXs = new double[0];
+    private double[] stripYs = new double[0];
+
+    private int lastEvaluated;
+
+    /**
+     * Garante que as amostras {@code from <= k < to} do passo {@code step} estejam no buffer,
+     * avaliando só as que faltam, em faixas de até {@code chunk} pontos.
+     *
+     * @return {@code false} se {@code cancelled} interrompeu a avaliação; as faixas já avaliadas
+     *         continuam no buffer e são aproveitadas no próximo pedido.
+     * @throws ExpressionException Se algum ponto gerar erro; o buffer é esvaziado.
+     */
+    boolean cover(FunctionEvaluator evaluator, double step, long from, long to, int chunk, BooleanSupplier cancelled) {
+        int n = Math.toIntExact(to - from);
+        lastEvaluated = 0;
+        if (n == 0) {
+            return true;
+        }
+        if (step != this.step || ring.length < n) {
+            this.step = step;
+            if (ring.length < n) {
+                // Folga para arrastos sem realocar
+                ring = new double[n + n / 2];
+            }
+            count = 0;
+        }
+        long end = first + count;
+        if (count == 0 || end <= from || first >= to) {
+            first = from;
+            head = 0;
+            count = 0;
+        } else {
+            // Descarta o que saiu da janela, sem mover o que continua nela
+            if (first < from) {
+                head = position(from - first);
+                count -= (int) (from - first);
+                first = from;
+            }
+            if (first + count > to) {
+                count = (int) (to - first);
+            }
+        }
+        try {
+            // Faixa nova à direita, depois à esquerda, sempre a partir da parte já válida
+            while (first + count < to) {
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                long start = first + count;
+                int len = (int) Math.min(chunk, to - start);
+                evaluate(evaluator, start, len);
+                for (int i = 0; i < len; i++) {
+                    ring[position(count + i)] = stripYs[i];
+                }
+                count += len;
+            }
+            while (first > from) {
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                int len = (int) Math.min(chunk, first - from);
+                long start = first - len;
+                evaluate(evaluator, start, len);
+                head = position(-len);
+                first = start;
+                count += len;
+                for (int i = 0; i < len; i++) {
+                    ring[position(i)] = stripYs[i];
+                }
+            }
+        } catch (ExpressionException e) {
+            clear();
+            throw e;
+        }
+        return true;
+    }
+
+    private void evaluate(FunctionEvaluator evaluator, long start, int len) {
+        if (stripXs.length != len) {
+            stripXs = new double[len];
+            stripYs = new double[len];
+        }
+        for (int i = 0; i < len; i++) {
+            stripXs[i] = (start + i) * step;
+        }
+        evaluator.evaluate(stripXs, stripYs);
+        lastEvaluated += len;
+    }
+
+    // Posição em ring da amostra first + offset
+    private int position(long offset) {
+        return (int) Math.floorMod(head + offset, (long) ring.length);
+    }
+
+    /**
+     * Copia as amostras {@code from <= k < to}, que devem estar no buffer, para {@code out[0..]}.
+     */
+    void copy(long from, long to, double[] out) {
+        if (from < first || to > first + count) {
+            throw new IllegalArgumentException("Amostras [" + from + ", " + to + ") fora do buffer ["
+                                               + first + ", " + (first + count) + ")");
+        }
+        int n = (int) (to - from);
+        int start = position(from - first);
+        int tail = Math.min(n, ring.length - start);
+        System.arraycopy(ring, start, out, 0, tail);
+        System.arraycopy(ring, 0, out, tail, n - tail);
+    }
+
+    /**
+     * Esquece todas as amostras (ex: a função ou um parâmetro mudou).
+     */
+    void clear() {
+        step = Double.NaN;
+        count = 0;
+    }
+
+    /**
+     * @return Amostras avaliadas na última chamada de {@link #cover}; as demais foram reaproveitadas.
+     */
+    int getLastEvaluated() {
+        return lastEvaluated;
+    }
+
+    int size() {
+        return count;
+    }
+}
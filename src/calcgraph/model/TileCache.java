@@ -0,0 +1,175 @@
+package calcgraph.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache LRU de blocos ("tiles") de amostras de uma função, no estilo dos mapas em blocos.
+ *
+ * Cada nível de zoom {@code z} tem uma grade de passo {@code 2^-z} ancorada em x = 0
+ * ({@link #stepOf(int)}); o bloco {@code i} do nível {@code z} guarda as {@link #TILE_SIZE}
+ * amostras {@code y(k * 2^-z)} com {@code i * TILE_SIZE <= k < (i + 1) * TILE_SIZE}.
+ * Como os níveis são potências de 2, aproximar e afastar o zoom em volta da mesma região
+ * volta aos mesmos blocos, em vez de gerar grades novas a cada passo da roda do mouse.
+ *
+ * O cache é limitado em bytes; ao passar do limite, os blocos usados há mais tempo saem
+ * primeiro. Os blocos valem para uma função com valores fixos dos parâmetros: trocar
+ * qualquer um deles exige {@link #clear()}. Não é thread-safe: pertence à thread do JavaFX.
+ */
+public class TileCache {
+
+    public static final int TILE_SIZE = 256;
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    // Memória de um bloco: as amostras (o x de cada uma sai do índice)
+    static final long TILE_BYTES = TILE_SIZE * (long) Double.BYTES;
+
+    private final long maxBytes;
+    private final Map<Key, double[]> tiles;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TileCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public TileCache(long maxBytes) {
+        if (maxBytes < TILE_BYTES) {
+            throw new IllegalArgumentException("O limite do cache deve comportar ao menos um bloco ("
+                                               + TILE_BYTES + " bytes): " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.tiles = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+                if (size() * TILE_BYTES > TileCache.this.maxBytes) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static final class Key {
+        private final int level;
+        private final long index;
+
+        Key(int level, long index) {
+            this.level = level;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return level == key.level && index == key.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(level, index);
+        }
+    }
+
+    /**
+     * @return O nível cuja grade tem o maior passo que não passa de {@code step}
+     *         (entre {@code step / 2} e {@code step}).
+     */
+    public static int levelFor(double step) {
+        return -Math.getExponent(step);
+    }
+
+    /**
+     * @return O passo da grade do nível, {@code 2^-level}, exato em ponto flutuante.
+     */
+    public static double stepOf(int level) {
+        return Math.scalb(1.0, -level);
+    }
+
+    /**
+     * @return O bloco que contém a amostra {@code k}.
+     */
+    public static long tileOf(long k) {
+        return Math.floorDiv(k, TILE_SIZE);
+    }
+
+    /**
+     * @return As amostras do bloco, marcando-o como usado, ou {@code null} se ele não está no cache.
+     */
+    public double[] get(int level, long index) {
+        double[] tile = tiles.get(new Key(level, index));
+        if (tile != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tile;
+    }
+
+    /**
+     * @return Se o bloco está no cache, sem marcá-lo como usado nem contar acerto ou falha.
+     */
+    public boolean contains(int level, long index) {
+        return tiles.containsKey(new Key(level, index));
+    }
+
+    /**
+     * Guarda as {@link #TILE_SIZE} amostras de um bloco, descartando os mais antigos se preciso.
+     */
+    public void put(int level, long index, double[] samples) {
+        if (samples.length != TILE_SIZE) {
+            throw new IllegalArgumentException("Um bloco tem " + TILE_SIZE + " amostras, não " + samples.length);
+        }
+        tiles.put(new Key(level, index), samples);
+    }
+
+    public void clear() {
+        tiles.clear();
+    }
+
+    public int size() {
+        return tiles.size();
+    }
+
+    public long getSizeBytes() {
+        return tiles.size() * TILE_BYTES;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "TileCache{" +
+               "tiles=" + tiles.size() +
+               ", bytes=" + getSizeBytes() +
+               ", maxBytes=" + maxBytes +
+               ", hits=" + hits +
+               ", misses=" + misses +
+               ", evictions=" + evictions +
+               '}';
+    }
+}
@@ -0,0 +1,262 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+
+import java.util.Arrays;
+
+/**
+ * Avaliação colunar de um {@link Program}: cada instrução é aplicada a um bloco
+ * inteiro de pontos antes de passar à próxima. Os registradores da pilha são
+ * colunas {@code double[]}, então os laços de {@code + - * /} são simples o bastante
+ * para o JIT desenrolar e vetorizar.
+ *
+ * Cada variável é uma coluna de entrada ({@link #evaluate(double[][], double[], int, int)});
+ * a forma com um único vetor de x é o caso mais comum. Uma variável sem coluna pode ter
+ * um valor fixo ({@link #setParameter}): ela entra como registrador escalar, então trocar
+ * o parâmetro não exige recompilar nada e o trabalho que só depende dele sai do laço.
+ *
+ * Valores que não dependem das variáveis (constantes, resultados sobre constantes, temporários
+ * calculados a partir deles) não viram colunas: ficam em registradores escalares e são
+ * calculados uma vez por bloco, de modo que o laço sobre os pontos só contém o trabalho
+ * que depende delas. Uma operação entre coluna e escalar usa o escalar diretamente,
+ * sem preencher uma coluna com o valor repetido. Os laços sobre colunas ficam em
+ * {@link ColumnKernels}, que pode ser a versão vetorizada (SIMD).
+ *
+ * Os pontos são processados em blocos de {@link #BLOCK_SIZE} para que as colunas
+ * caibam no cache. Se algum ponto do bloco gerar erro, o bloco é refeito ponto a
+ * ponto, para lançar a mesma exceção que a avaliação individual lançaria.
+ *
+ * Uma instância reaproveita seus registradores e não deve ser usada por várias threads ao mesmo tempo.
+ */
+class BatchEvaluator {
+
+    static final int BLOCK_SIZE = 1024;
+
+    private final Program program;
+    private final int xSlot;
+    private final double[][] registers;
+    private final boolean[] isScalar;
+    private final double[] scalars;
+    private final double[][] temps;
+    private final boolean[] isScalarTemp;
+    private final double[] scalarTemps;
+    private final double[] arguments;
+    private final double[] variables;
+    // Entradas de evaluate(xs, ...): só a coluna de x é preenchida
+    private final double[][] xColumns;
+    // Slots lidos por alguma instrução LOAD_VAR
+    private final boolean[] loaded;
+    // Parâmetros: variáveis com um único valor para todos os pontos, usadas quando não há coluna
+    private final boolean[] isParameter;
+    private final double[] parameters;
+    private final PostfixEvaluator pointEvaluator = new PostfixEvaluator();
+    private final ColumnKernels kernels;
+
+    BatchEvaluator(Program program, int xSlot) {
+        this(program, xSlot, ColumnKernels.selected());
+    }
+
+    BatchEvaluator(Program program, int xSlot, ColumnKernels kernels) {
+        this.program = program;
+        this.kernels = kernels;
+        this.xSlot = xSlot;
+        this.registers = new double[Math.max(1, program.maxStackDepth)][BLOCK_SIZE];
+        this.isScalar = new boolean[registers.length];
+        this.scalars = new double[registers.length];
+        this.temps = new double[program.tempCount][BLOCK_SIZE];
+        this.isScalarTemp = new boolean[program.tempCount];
+        this.scalarTemps = new double[program.tempCount];
+        this.arguments = new double[program.maxArity];
+        this.variables = new double[program.getVariableCount()];
+        this.xColumns = new double[program.getVariableCount()][];
+        this.loaded = new boolean[program.getVariableCount()];
+        this.isParameter = new boolean[program.getVariableCount()];
+        this.parameters = new double[program.getVariableCount()];
+        int[] code = program.code;
+        for (int pc = 0; pc < code.length; pc += Opcode.length(code[pc])) {
+            if (code[pc] == Opcode.LOAD_VAR) {
+                loaded[code[pc + 1]] = true;
+            }
+        }
+    }
+
+    /**
+     * Fixa o valor da variável do slot para todos os pontos em que ela não tiver coluna.
+     */
+    void setParameter(int slot, double value) {
+        isParameter[slot] = true;
+        parameters[slot] = value;
+    }
+
+    /**
+     * Avalia {@code out[i] = f(xs[i])} para {@code from <= i < to}.
+     */
+    void evaluate(double[] xs, double[] out, int from, int to) {
+        if (xSlot >= 0) {
+            xColumns[xSlot] = xs;
+        }
+        try {
+            evaluate(xColumns, out, from, to);
+        } finally {
+            if (xSlot >= 0) {
+                xColumns[xSlot] = null;
+            }
+        }
+    }
+
+    /**
+     * Avalia {@code out[i] = f(columns[0][i], columns[1][i], ...)} para {@code from <= i < to}:
+     * {@code columns[k]} tem os valores da variável do slot {@code k}. Colunas de variáveis
+     * que a expressão não usa ou que são parâmetros podem ser {@code null}.
+     *
+     * @throws ExpressionException Se faltar a coluna de uma variável usada ou algum ponto gerar erro.
+     */
+    void evaluate(double[][] columns, double[] out, int from, int to) {
+        for (int k = 0; k < loaded.length; k++) {
+            if (loaded[k] && column(columns, k) == null && !isParameter[k]) {
+                throw new ExpressionException("Variável '" + program.getVariables().get(k) + "' sem valor definido.");
+            }
+        }
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            try {
+                evaluateBlock(columns, out, start, end - start);
+            } catch (RuntimeException e) {
+                evaluatePointByPoint(columns, out, start, end);
+            }
+        }
+    }
+
+    private void evaluatePointByPoint(double[][] columns, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            for (int k = 0; k < loaded.length; k++) {
+                if (loaded[k]) {
+                    double[] column = column(columns, k);
+                    variables[k] = column != null ? column[i] : parameters[k];
+                }
+            }
+            out[i] = pointEvaluator.evaluate(program, variables);
+        }
+    }
+
+    private void evaluateBlock(double[][] columns, double[] out, int offset, int n) {
+        int[] code = program.code;
+        double[] constants = program.constants;
+        double[][] stack = registers;
+        int sp = 0;
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case Opcode.PUSH_CONST:
+                    isScalar[sp] = true;
+                    scalars[sp++] = constants[code[pc++]];
+                    break;
+                case Opcode.LOAD_VAR: {
+                    int slot = code[pc++];
+                    double[] column = column(columns, slot);
+                    if (column == null) {
+                        isScalar[sp] = true;
+                        scalars[sp++] = parameters[slot];
+                    } else {
+                        isScalar[sp] = false;
+                        System.arraycopy(column, offset, stack[sp++], 0, n);
+                    }
+                    break;
+                }
+                case Opcode.STORE_TEMP: {
+                    int temp = code[pc++];
+                    isScalarTemp[temp] = isScalar[sp - 1];
+                    if (isScalar[sp - 1]) {
+                        scalarTemps[temp] = scalars[sp - 1];
+                    } else {
+                        System.arraycopy(stack[sp - 1], 0, temps[temp], 0, n);
+                    }
+                    break;
+                }
+                case Opcode.LOAD_TEMP: {
+                    int temp = code[pc++];
+                    isScalar[sp] = isScalarTemp[temp];
+                    if (isScalarTemp[temp]) {
+                        scalars[sp] = scalarTemps[temp];
+                    } else {
+                        System.arraycopy(temps[temp], 0, stack[sp], 0, n);
+                    }
+                    sp++;
+                    break;
+                }
+                case Opcode.ADD:
+                case Opcode.SUB:
+                case Opcode.MUL:
+                case Opcode.DIV:
+                case Opcode.POW: {
+                    int a = sp - 2;
+                    int b = --sp;
+                    if (isScalar[a] && isScalar[b]) {
+                        scalars[a] = PostfixEvaluator.applyBinary(opcode, scalars[a], scalars[b]);
+                    } else if (isScalar[b]) {
+                        kernels.binaryColumnScalar(opcode, stack[a], scalars[b], n);
+                    } else if (isScalar[a]) {
+                        kernels.binaryScalarColumn(opcode, scalars[a], stack[b], stack[a], n);
+                        isScalar[a] = false;
+                    } else {
+                        kernels.binaryColumns(opcode, stack[a], stack[b], n);
+                    }
+                    break;
+                }
+                case Opcode.MEAN:
+                case Opcode.MODE:
+                case Opcode.MEDIAN:
+                case Opcode.VARIANCE:
+                case Opcode.STANDARD_DEVIATION:
+                case Opcode.Z:
+                case Opcode.T:
+                case Opcode.PA:
+                case Opcode.PG: {
+                    // Estatísticas não têm forma colunar: junta os argumentos de cada ponto
+                    int arity = code[pc++];
+                    sp -= arity;
+                    boolean allScalar = true;
+                    for (int k = 0; k < arity; k++) {
+                        allScalar &= isScalar[sp + k];
+                    }
+                    if (allScalar) {
+                        System.arraycopy(scalars, sp, arguments, 0, arity);
+                        scalars[sp] = PostfixEvaluator.applyStatistic(opcode, arguments, 0, arity);
+                        sp++;
+                        break;
+                    }
+                    double[] result = stack[sp];
+                    for (int i = 0; i < n; i++) {
+                        for (int k = 0; k < arity; k++) {
+                            arguments[k] = isScalar[sp + k] ? scalars[sp + k] : stack[sp + k][i];
+                        }
+                        result[i] = PostfixEvaluator.applyStatistic(opcode, arguments, 0, arity);
+                    }
+                    isScalar[sp++] = false;
+                    break;
+                }
+                default:
+                    if (isScalar[sp - 1]) {
+                        scalars[sp - 1] = opcode == Opcode.FACT
+                                ? PostfixEvaluator.factorial(scalars[sp - 1])
+                                : PostfixEvaluator.applyFunction(opcode, scalars[sp - 1]);
+                    } else {
+                        kernels.unaryColumn(opcode, stack[sp - 1], n);
+                    }
+                    break;
+            }
+        }
+
+        if (isScalar[0]) {
+            Arrays.fill(out, offset, offset + n, scalars[0]);
+        } else {
+            System.arraycopy(stack[0], 0, out, offset, n);
+        }
+    }
+
+    private static double[] column(double[][] columns, int slot) {
+        return slot < columns.length ? columns[slot] : null;
+    }
+}
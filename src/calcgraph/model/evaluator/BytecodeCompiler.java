@@ -0,0 +1,340 @@
+package calcgraph.model.evaluator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Camada opcional que traduz um {@link Program} para bytecode da JVM.
+ *
+ * Cada expressão vira uma classe oculta ({@code Lookup.defineHiddenClass}) que
+ * implementa {@link DoubleUnaryOperator}: a fórmula inteira fica em um único
+ * método sem desvios, que o JIT pode compilar e inlinear como código comum.
+ * Divisão, fatorial e funções estatísticas chamam os mesmos métodos estáticos
+ * do {@link PostfixEvaluator}, então resultados e mensagens de erro são
+ * idênticos aos do interpretador.
+ *
+ * Classes ocultas só existem a partir do Java 15; o método é obtido por reflexão
+ * para que o projeto continue compilando no Java 8. Quando não há suporte, ou com
+ * {@code -Dcalcgraph.bytecode=false}, {@link #compile(Program)} retorna {@code null}
+ * e o chamador continua no interpretador.
+ */
+public final class BytecodeCompiler {
+
+    // Métodos maiores que isso não são compilados pelo JIT do HotSpot (HugeMethodLimit),
+    // então o interpretador do programa seria mais rápido que o bytecode gerado.
+    private static final int MAX_CODE_LENGTH = 8000;
+
+    private static final String CLASS_NAME = "calcgraph/model/evaluator/GeneratedFunction";
+    private static final String EVALUATOR = "calcgraph/model/evaluator/PostfixEvaluator";
+    private static final String MATH = "java/lang/Math";
+
+    private static final Method DEFINE_HIDDEN_CLASS;
+    private static final Object NO_CLASS_OPTIONS;
+
+    static {
+        Method define = null;
+        Object options = null;
+        if (!"false".equalsIgnoreCase(System.getProperty("calcgraph.bytecode"))) {
+            try {
+                Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+                options = Array.newInstance(optionClass, 0);
+                define = MethodHandles.Lookup.class.getMethod("defineHiddenClass",
+                        byte[].class, boolean.class, options.getClass());
+            } catch (ReflectiveOperationException e) {
+                define = null;
+            }
+        }
+        DEFINE_HIDDEN_CLASS = define;
+        NO_CLASS_OPTIONS = options;
+    }
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * @return {@code true} se a JVM suporta classes ocultas e a camada não foi desligada.
+     */
+    public static boolean isAvailable() {
+        return DEFINE_HIDDEN_CLASS != null;
+    }
+
+    /**
+     * Gera e carrega a classe equivalente ao programa.
+     *
+     * @param program O programa montado.
+     * @return A função compilada, ou {@code null} se a camada estiver indisponível
+     *         ou o programa não puder ser traduzido (mais de uma variável ou código grande demais).
+     */
+    public static DoubleUnaryOperator compile(Program program) {
+        if (!isAvailable() || program.getVariableCount() > 1) {
+            return null;
+        }
+        byte[] classBytes = generate(program);
+        if (classBytes == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup hidden = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(
+                    MethodHandles.lookup(), classBytes, true, NO_CLASS_OPTIONS);
+            return (DoubleUnaryOperator) hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            // Falha ao carregar não é erro da expressão: basta continuar interpretando.
+            return null;
+        }
+    }
+
+    /**
+     * Monta o arquivo de classe (versão 52, sem desvios e portanto sem StackMapTable).
+     */
+    static byte[] generate(Program program) {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int operatorInterface = pool.classRef("java/util/function/DoubleUnaryOperator");
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int applyName = pool.utf8("applyAsDouble");
+        int applyDescriptor = pool.utf8("(D)D");
+        int codeName = pool.utf8("Code");
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        int firstTemp = 3; // 0 = this, 1-2 = x
+        int firstShared = firstTemp + 2 * program.maxArity;
+        int[] bytecode = program.code;
+        int pc = 0;
+        while (pc < bytecode.length) {
+            int opcode = bytecode[pc++];
+            switch (opcode) {
+                case Opcode.PUSH_CONST:
+                    pushDouble(code, pool, program.constants[bytecode[pc++]]);
+                    break;
+                case Opcode.LOAD_VAR:
+                    pc++;
+                    code.write(0x27); // dload_1
+                    break;
+                case Opcode.STORE_TEMP:
+                    code.write(0x5c); // dup2
+                    localInstruction(code, 0x39, firstShared + 2 * bytecode[pc++]); // dstore
+                    break;
+                case Opcode.LOAD_TEMP:
+                    localInstruction(code, 0x18, firstShared + 2 * bytecode[pc++]); // dload
+                    break;
+                case Opcode.ADD: code.write(0x63); break; // dadd
+                case Opcode.SUB: code.write(0x67); break; // dsub
+                case Opcode.MUL: code.write(0x6b); break; // dmul
+                case Opcode.SQUARE:
+                    code.write(0x5c); // dup2
+                    code.write(0x6b); // dmul
+                    break;
+                case Opcode.DIV: invokeStatic(code, pool.methodRef(EVALUATOR, "divide", "(DD)D")); break;
+                case Opcode.POW: invokeStatic(code, pool.methodRef(MATH, "pow", "(DD)D")); break;
+                case Opcode.FACT: invokeStatic(code, pool.methodRef(EVALUATOR, "factorial", "(D)D")); break;
+                case Opcode.SIN: invokeStatic(code, pool.methodRef(MATH, "sin", "(D)D")); break;
+                case Opcode.COS: invokeStatic(code, pool.methodRef(MATH, "cos", "(D)D")); break;
+                case Opcode.TAN: invokeStatic(code, pool.methodRef(MATH, "tan", "(D)D")); break;
+                case Opcode.LOG: invokeStatic(code, pool.methodRef(MATH, "log10", "(D)D")); break;
+                case Opcode.LN: invokeStatic(code, pool.methodRef(MATH, "log", "(D)D")); break;
+                case Opcode.SQRT: invokeStatic(code, pool.methodRef(MATH, "sqrt", "(D)D")); break;
+                case Opcode.ABS: invokeStatic(code, pool.methodRef(MATH, "abs", "(D)D")); break;
+                case Opcode.CEIL: invokeStatic(code, pool.methodRef(MATH, "ceil", "(D)D")); break;
+                case Opcode.FLOOR: invokeStatic(code, pool.methodRef(MATH, "floor", "(D)D")); break;
+                case Opcode.FAT: invokeStatic(code, pool.methodRef(EVALUATOR, "fat", "(D)D")); break;
+                default:
+                    // Função estatística: os argumentos saem da pilha para variáveis locais
+                    // e são copiados, na ordem original, para um double[] novo.
+                    int arity = bytecode[pc++];
+                    for (int i = arity - 1; i >= 0; i--) {
+                        localInstruction(code, 0x39, firstTemp + 2 * i); // dstore
+                    }
+                    pushInt(code, pool, opcode);
+                    pushInt(code, pool, arity);
+                    code.write(0xbc); // newarray
+                    code.write(7);    // T_DOUBLE
+                    for (int i = 0; i < arity; i++) {
+                        code.write(0x59); // dup
+                        pushInt(code, pool, i);
+                        localInstruction(code, 0x18, firstTemp + 2 * i); // dload
+                        code.write(0x52); // dastore
+                    }
+                    invokeStatic(code, pool.methodRef(EVALUATOR, "applyStatistic", "(I[D)D"));
+                    break;
+            }
+            if (code.size() > MAX_CODE_LENGTH || pool.size() > 0xfff0) {
+                return null;
+            }
+        }
+        code.write(0xaf); // dreturn
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(0xCAFEBABE);
+            data.writeShort(0);
+            data.writeShort(52);
+            pool.writeTo(data);
+            data.writeShort(0x0031); // public final super
+            data.writeShort(thisClass);
+            data.writeShort(superClass);
+            data.writeShort(1);
+            data.writeShort(operatorInterface);
+            data.writeShort(0); // campos
+            data.writeShort(2); // métodos
+
+            byte[] initCode = {0x2a, (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xb1};
+            writeMethod(data, 0x0001, initName, initDescriptor, codeName, 1, 1, initCode);
+            writeMethod(data, 0x0011, applyName, applyDescriptor, codeName,
+                    2 * program.maxStackDepth + 6, firstShared + 2 * program.tempCount, code.toByteArray());
+
+            data.writeShort(0); // atributos da classe
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream data, int access, int name, int descriptor, int codeName,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        data.writeShort(access);
+        data.writeShort(name);
+        data.writeShort(descriptor);
+        data.writeShort(1);
+        data.writeShort(codeName);
+        data.writeInt(12 + code.length);
+        data.writeShort(maxStack);
+        data.writeShort(maxLocals);
+        data.writeInt(code.length);
+        data.write(code);
+        data.writeShort(0); // tabela de exceções
+        data.writeShort(0); // atributos do Code
+    }
+
+    private static void pushDouble(ByteArrayOutputStream code, ConstantPool pool, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (bits == 0L) {
+            code.write(0x0e); // dconst_0
+        } else if (bits == Double.doubleToRawLongBits(1.0)) {
+            code.write(0x0f); // dconst_1
+        } else {
+            int index = pool.doubleConstant(value);
+            code.write(0x14); // ldc2_w
+            code.write(index >> 8);
+            code.write(index);
+        }
+    }
+
+    private static void pushInt(ByteArrayOutputStream code, ConstantPool pool, int value) {
+        if (value >= -128 && value <= 127) {
+            code.write(0x10); // bipush
+            code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.write(0x11); // sipush
+            code.write(value >> 8);
+            code.write(value);
+        } else {
+            int index = pool.intConstant(value);
+            code.write(0x13); // ldc_w
+            code.write(index >> 8);
+            code.write(index);
+        }
+    }
+
+    private static void localInstruction(ByteArrayOutputStream code, int instruction, int local) {
+        if (local > 0xff) {
+            code.write(0xc4); // wide
+            code.write(instruction);
+            code.write(local >> 8);
+            code.write(local);
+        } else {
+            code.write(instruction);
+            code.write(local);
+        }
+    }
+
+    private static void invokeStatic(ByteArrayOutputStream code, int methodRef) {
+        code.write(0xb8);
+        code.write(methodRef >> 8);
+        code.write(methodRef);
+    }
+
+    /**
+     * Pool de constantes com deduplicação das entradas.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int next = 1;
+
+        int size() {
+            return next;
+        }
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> data.writeUTF(value), 1);
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, 7, () -> data.writeShort(nameIndex), 1);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + ' ' + descriptor, 12, () -> {
+                data.writeShort(nameIndex);
+                data.writeShort(descriptorIndex);
+            }, 1);
+            return entry("M" + owner + '.' + name + descriptor, 10, () -> {
+                data.writeShort(ownerIndex);
+                data.writeShort(nameAndType);
+            }, 1);
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            return entry("D" + bits, 6, () -> data.writeLong(bits), 2);
+        }
+
+        int intConstant(int value) {
+            return entry("I" + value, 3, () -> data.writeInt(value), 1);
+        }
+
+        private int entry(String key, int tag, Body body, int slots) {
+            Integer existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                data.writeByte(tag);
+                body.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = next;
+            next += slots;
+            entries.put(key, index);
+            return index;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(next);
+            data.flush();
+            bytes.writeTo(out);
+        }
+    }
+
+    private interface Body {
+        void write() throws IOException;
+    }
+}
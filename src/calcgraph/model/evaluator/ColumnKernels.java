@@ -0,0 +1,203 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+
+/**
+ * Laços colunares do {@link BatchEvaluator}: cada método aplica uma instrução a
+ * {@code n} pontos de uma vez. Esta é a versão escalar, que o JIT pode desenrolar
+ * e, nos casos simples, vetorizar sozinho.
+ *
+ * Com {@code -Dcalcgraph.simd=true} (e {@code --add-modules jdk.incubator.vector} no Java 16+),
+ * {@link #selected()} devolve a subclasse {@code VectorColumnKernels}, compilada à parte a
+ * partir de {@code src-simd}, que usa a Vector API nas operações com forma vetorial exata e
+ * cai nestes laços nas demais. Sem o módulo ou a classe, a versão escalar é usada.
+ */
+class ColumnKernels {
+
+    private static final String VECTOR_KERNELS = "calcgraph.model.evaluator.VectorColumnKernels";
+
+    private static final ColumnKernels SCALAR = new ColumnKernels();
+    private static final ColumnKernels VECTOR = loadVector();
+    private static final ColumnKernels SELECTED =
+            Boolean.getBoolean("calcgraph.simd") && VECTOR != null ? VECTOR : SCALAR;
+
+    /**
+     * @return Os laços escolhidos pela configuração da JVM.
+     */
+    static ColumnKernels selected() {
+        return SELECTED;
+    }
+
+    static ColumnKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return A versão vetorizada, ou {@code null} se a Vector API ou a classe não estiverem disponíveis.
+     */
+    static ColumnKernels vector() {
+        return VECTOR;
+    }
+
+    private static ColumnKernels loadVector() {
+        try {
+            return (ColumnKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Classe não compilada, Java anterior ao 16 ou módulo jdk.incubator.vector ausente
+            return null;
+        }
+    }
+
+    /**
+     * @return Um nome curto para relatórios e benchmarks.
+     */
+    String name() {
+        return "escalar";
+    }
+
+    // a = a op b
+    void binaryColumns(int opcode, double[] a, double[] b, int n) {
+        switch (opcode) {
+            case Opcode.ADD:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] + b[i];
+                }
+                break;
+            case Opcode.SUB:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] - b[i];
+                }
+                break;
+            case Opcode.MUL:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] * b[i];
+                }
+                break;
+            case Opcode.DIV:
+                for (int i = 0; i < n; i++) {
+                    if (b[i] == 0) {
+                        throw new ExpressionException("Divisão por zero.");
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] / b[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.pow(a[i], b[i]);
+                }
+                break;
+        }
+    }
+
+    // a = a op b, com b escalar
+    void binaryColumnScalar(int opcode, double[] a, double b, int n) {
+        switch (opcode) {
+            case Opcode.ADD:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] + b;
+                }
+                break;
+            case Opcode.SUB:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] - b;
+                }
+                break;
+            case Opcode.MUL:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] * b;
+                }
+                break;
+            case Opcode.DIV:
+                if (b == 0) {
+                    throw new ExpressionException("Divisão por zero.");
+                }
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] / b;
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.pow(a[i], b);
+                }
+                break;
+        }
+    }
+
+    // dest = a op b, com a escalar
+    void binaryScalarColumn(int opcode, double a, double[] b, double[] dest, int n) {
+        switch (opcode) {
+            case Opcode.ADD:
+                for (int i = 0; i < n; i++) {
+                    dest[i] = a + b[i];
+                }
+                break;
+            case Opcode.SUB:
+                for (int i = 0; i < n; i++) {
+                    dest[i] = a - b[i];
+                }
+                break;
+            case Opcode.MUL:
+                for (int i = 0; i < n; i++) {
+                    dest[i] = a * b[i];
+                }
+                break;
+            case Opcode.DIV:
+                for (int i = 0; i < n; i++) {
+                    if (b[i] == 0) {
+                        throw new ExpressionException("Divisão por zero.");
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    dest[i] = a / b[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    dest[i] = Math.pow(a, b[i]);
+                }
+                break;
+        }
+    }
+
+    void unaryColumn(int opcode, double[] a, int n) {
+        switch (opcode) {
+            case Opcode.SQUARE:
+                for (int i = 0; i < n; i++) {
+                    a[i] = a[i] * a[i];
+                }
+                break;
+            case Opcode.FACT:
+                for (int i = 0; i < n; i++) {
+                    a[i] = PostfixEvaluator.factorial(a[i]);
+                }
+                break;
+            case Opcode.SIN:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.sin(a[i]);
+                }
+                break;
+            case Opcode.COS:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.cos(a[i]);
+                }
+                break;
+            case Opcode.SQRT:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.sqrt(a[i]);
+                }
+                break;
+            case Opcode.ABS:
+                for (int i = 0; i < n; i++) {
+                    a[i] = Math.abs(a[i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    a[i] = PostfixEvaluator.applyFunction(opcode, a[i]);
+                }
+                break;
+        }
+    }
+}
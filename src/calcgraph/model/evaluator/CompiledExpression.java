@@ -0,0 +1,270 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+import calcgraph.model.parser.ShuntingYardAlgorithm;
+import calcgraph.model.token.Token;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Forma compilada de uma expressão: o resultado de tokenizar, validar e converter
+ * para pós-fixada uma única vez. Instâncias são obtidas pelo {@link CompiledExpressionCache}
+ * e reutilizadas por todos os pontos de avaliação.
+ *
+ * A execução segue a {@link TieredPolicy}: a expressão começa interpretada e,
+ * depois de avaliada pontos suficientes, é trocada pela versão em bytecode.
+ *
+ * Instâncias são imutáveis do ponto de vista de quem avalia (tokens, programa e
+ * função gerada nunca mudam depois de publicados; só os contadores da política
+ * avançam, de forma atômica). {@link #evaluate()} e {@link #evaluate(double)} podem
+ * ser chamados por várias threads ao mesmo tempo, sem locks e sem cópias por thread.
+ */
+public final class CompiledExpression {
+
+    private final String expression;
+    private final List<Token> postfixTokens;
+    private final Program program;
+    private final int xSlot;
+    private final TieredPolicy policy;
+
+    private static final double[] NO_TEMPS = new double[0];
+
+    /**
+     * Camadas de execução de uma expressão.
+     */
+    public enum Tier {
+        /** Avaliada pelo interpretador, contando pontos. */
+        INTERPRETED,
+        /** Atingiu o limiar; o bytecode está sendo gerado em segundo plano. */
+        PROMOTING,
+        /** Avaliada pela classe gerada. */
+        COMPILED,
+        /** Não pôde ser compilada; fica no interpretador definitivamente. */
+        UNCOMPILABLE
+    }
+
+    private final AtomicReference<Tier> tier = new AtomicReference<>(Tier.INTERPRETED);
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong points = new AtomicLong();
+    // Publicada antes da troca para COMPILED: quem vê o tier novo vê a função
+    private volatile DoubleUnaryOperator function;
+
+    private CompiledExpression(String expression, List<Token> postfixTokens, String[] variables, TieredPolicy policy) {
+        this.expression = expression;
+        this.postfixTokens = Collections.unmodifiableList(postfixTokens);
+        this.program = ProgramOptimizer.optimize(Program.assemble(postfixTokens, variables));
+        this.xSlot = program.slotOf("x");
+        this.policy = policy;
+    }
+
+    /**
+     * Tokeniza, valida, converte a expressão para a notação pós-fixada e otimiza o programa resultante.
+     *
+     * @param expression A expressão na notação infixa.
+     * @return A expressão compilada.
+     * @throws ExpressionException Se a expressão for inválida.
+     */
+    public static CompiledExpression compile(String expression) throws ExpressionException {
+        return compile(expression, TieredPolicy.shared());
+    }
+
+    /**
+     * Como {@link #compile(String)}, com uma política de camadas própria.
+     */
+    public static CompiledExpression compile(String expression, TieredPolicy policy) throws ExpressionException {
+        return compile(expression, new ExpressionParser(), null, policy);
+    }
+
+    /**
+     * Compila uma função de várias variáveis (ex: {@code compile("x*y + t", "x", "y", "t")}).
+     * A variável {@code variables[i]} ocupa o slot {@code i}, na ordem da declaração, e
+     * o valor dela é {@code vars[i]} em {@link #evaluate(double[])}.
+     *
+     * @throws ExpressionException Se a expressão for inválida.
+     * @throws IllegalArgumentException Se algum nome de variável for inválido ou repetido.
+     */
+    public static CompiledExpression compile(String expression, String... variables) throws ExpressionException {
+        return compile(expression, TieredPolicy.shared(), variables);
+    }
+
+    /**
+     * Como {@link #compile(String, String...)}, com uma política de camadas própria.
+     */
+    public static CompiledExpression compile(String expression, TieredPolicy policy, String... variables)
+            throws ExpressionException {
+        return compile(expression, new ExpressionParser(variables), variables, policy);
+    }
+
+    private static CompiledExpression compile(String expression, ExpressionParser parser, String[] variables,
+                                              TieredPolicy policy) {
+        ShuntingYardAlgorithm shuntingYard = new ShuntingYardAlgorithm();
+
+        List<Token> infixTokens = parser.tokenize(expression);
+        parser.validateTokenSequence(infixTokens);
+        return new CompiledExpression(expression, shuntingYard.convertToPostfix(infixTokens), variables, policy);
+    }
+
+    /**
+     * Avalia a função em x. Seguro para várias threads: o interpretador sem estado
+     * ({@link PostfixEvaluator#execute}) usa uma pilha própria da chamada, com x no lugar
+     * do vetor de variáveis, e a função gerada não tem estado.
+     *
+     * @throws ExpressionException Se o cálculo resultar em erro (ex: divisão por zero) ou se a
+     *                             expressão depender de outras variáveis além de x.
+     */
+    public double evaluate(double x) {
+        checkOnlyX(program, xSlot);
+        DoubleUnaryOperator compiled = recordEvaluations(1, 1);
+        if (compiled != null) {
+            return compiled.applyAsDouble(x);
+        }
+        return PostfixEvaluator.execute(program, null, x, newStack(), newTemps());
+    }
+
+    /**
+     * Avalia a função com {@code vars[k]} como valor da variável do slot {@code k}
+     * (ver {@link #getVariables()}). Seguro para várias threads, como {@link #evaluate(double)};
+     * para avaliar muitos pontos sem alocar, use um {@link FunctionEvaluator}.
+     *
+     * @throws ExpressionException Se faltar o valor de alguma variável ou o cálculo resultar em erro.
+     */
+    public double evaluate(double[] vars) {
+        if (vars.length < program.getVariableCount()) {
+            throw new ExpressionException("Variável '" + program.getVariables().get(vars.length) + "' sem valor definido.");
+        }
+        DoubleUnaryOperator compiled = recordEvaluations(1, 1);
+        if (compiled != null) {
+            // Só programas de no máximo uma variável são compilados, e ela ocupa o slot 0
+            return compiled.applyAsDouble(vars.length > 0 ? vars[0] : 0);
+        }
+        return PostfixEvaluator.execute(program, vars, 0, newStack(), newTemps());
+    }
+
+    /**
+     * Avalia uma expressão sem variáveis.
+     *
+     * @throws ExpressionException Se a expressão tiver variáveis, em qualquer camada.
+     */
+    public double evaluate() {
+        // A função gerada aceita qualquer valor de x: a falta de valor é verificada antes
+        if (program.getVariableCount() > 0) {
+            throw new ExpressionException("Variável '" + program.getVariables().get(0) + "' sem valor definido.");
+        }
+        DoubleUnaryOperator compiled = recordEvaluations(1, 1);
+        if (compiled != null) {
+            return compiled.applyAsDouble(0);
+        }
+        return PostfixEvaluator.execute(program, null, 0, newStack(), newTemps());
+    }
+
+    // Memória de uma avaliação pelo interpretador, local à chamada: a expressão não guarda
+    // nenhum buffer mutável, e o caminho quente (FunctionEvaluator) reaproveita os seus
+    private double[] newStack() {
+        return new double[program.maxStackDepth];
+    }
+
+    private double[] newTemps() {
+        return program.tempCount == 0 ? NO_TEMPS : new double[program.tempCount];
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return Os tokens pós-fixados (lista somente leitura).
+     */
+    public List<Token> getPostfixTokens() {
+        return postfixTokens;
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * @return Os nomes das variáveis, na ordem de seus slots.
+     */
+    public List<String> getVariables() {
+        return program.getVariables();
+    }
+
+    /**
+     * As formas de avaliação com um único valor de x não se aplicam a funções de outras variáveis.
+     */
+    private static void checkOnlyX(Program program, int xSlot) {
+        if (program.getVariableCount() > (xSlot >= 0 ? 1 : 0)) {
+            throw new ExpressionException("A expressão depende de outras variáveis além de x: " + program.getVariables());
+        }
+    }
+
+    /**
+     * Registra avaliações feitas pelo interpretador e promove a expressão ao
+     * atingir o limiar da política.
+     *
+     * @return A função compilada, ou {@code null} enquanto a expressão não tiver sido promovida.
+     */
+    DoubleUnaryOperator recordEvaluations(long invocationCount, long pointCount) {
+        DoubleUnaryOperator compiled = function;
+        if (compiled != null) {
+            return compiled;
+        }
+        invocations.addAndGet(invocationCount);
+        long total = points.addAndGet(pointCount);
+        if (policy.isHot(total) && tier.compareAndSet(Tier.INTERPRETED, Tier.PROMOTING)) {
+            policy.promote(this);
+        }
+        return function;
+    }
+
+    /**
+     * Troca atômica de camada, chamada pela política ao fim da geração de bytecode.
+     */
+    void install(DoubleUnaryOperator compiled) {
+        function = compiled;
+        tier.set(compiled != null ? Tier.COMPILED : Tier.UNCOMPILABLE);
+    }
+
+    /**
+     * @return A versão em bytecode, ou {@code null} se a expressão ainda é interpretada.
+     */
+    public DoubleUnaryOperator getCompiledFunction() {
+        return function;
+    }
+
+    public Tier getTier() {
+        return tier.get();
+    }
+
+    /**
+     * @return Invocações contadas enquanto a expressão era interpretada.
+     */
+    public long getInvocationCount() {
+        return invocations.get();
+    }
+
+    /**
+     * @return Pontos avaliados pelo interpretador.
+     */
+    public long getPointCount() {
+        return points.get();
+    }
+
+    public boolean hasVariable() {
+        return program.getVariableCount() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledExpression{" +
+               "expression='" + expression + '\'' +
+               ", postfix=" + postfixTokens +
+               ", tier=" + tier.get() +
+               '}';
+    }
+}
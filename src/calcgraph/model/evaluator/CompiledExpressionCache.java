@@ -0,0 +1,116 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU, limitado e thread-safe de expressões compiladas.
+ * A chave é o texto normalizado da expressão (sem espaços em branco), de modo que
+ * "x ^ 2" e "x^2" compartilham a mesma entrada.
+ *
+ * Uma única instância é compartilhada por {@code AnalisadorDeExpressoes},
+ * {@link FunctionEvaluator} e {@code GraphPlotter} através de {@link #shared()}.
+ */
+public class CompiledExpressionCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final CompiledExpressionCache SHARED = new CompiledExpressionCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final Map<String, CompiledExpression> entries;
+
+    // Protegidos pelo monitor da instância
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CompiledExpressionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("A capacidade do cache deve ser positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                if (size() > CompiledExpressionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static CompiledExpressionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Retorna a forma compilada da expressão, compilando-a na primeira vez.
+     * A compilação acontece fora do lock; se duas threads compilarem a mesma
+     * expressão ao mesmo tempo, a primeira a publicar vence.
+     *
+     * @throws ExpressionException Se a expressão for inválida (erros não são armazenados).
+     */
+    public CompiledExpression get(String expression) throws ExpressionException {
+        String key = ExpressionParser.normalize(expression);
+        synchronized (this) {
+            CompiledExpression cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        CompiledExpression compiled = CompiledExpression.compile(key);
+
+        synchronized (this) {
+            CompiledExpression existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            entries.put(key, compiled);
+            return compiled;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CompiledExpressionCache{" +
+               "size=" + entries.size() +
+               ", capacity=" + capacity +
+               ", hits=" + hits +
+               ", misses=" + misses +
+               ", evictions=" + evictions +
+               '}';
+    }
+}
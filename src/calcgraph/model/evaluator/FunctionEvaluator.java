@@ -5,42 +5,257 @@
 package calcgraph.model.evaluator;
 
 import calcgraph.model.exception.ExpressionException;
-import calcgraph.model.parser.ExpressionParser;
-import calcgraph.model.parser.ShuntingYardAlgorithm;
-import calcgraph.model.token.Token;
-import calcgraph.model.token.TokenType;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 /**
+ * Avalia uma função de x repetidas vezes sobre a forma compilada da expressão.
+ * A variável ocupa um slot do programa: {@link #evaluate(double)} escreve x
+ * diretamente nesse slot, sem criar tokens nem converter x para texto.
+ * Funções de várias variáveis (ver {@link CompiledExpression#compile(String, String...)})
+ * são avaliadas por {@link #evaluate(double[])}, com um valor por slot, ou em lote por
+ * {@link #evaluate(double[][], double[])}, com uma coluna por slot.
+ *
+ * As demais variáveis também podem ser parâmetros ({@link #setParameter}): valores fixos
+ * para todos os pontos, como os coeficientes de {@code a*x^2 + b*x + c} controlados por
+ * sliders. Trocar um parâmetro só muda um slot; o programa não é recompilado e as
+ * avaliações seguintes de x já usam o valor novo.
+ * Os pontos são interpretados até a {@link TieredPolicy} promover a expressão;
+ * a partir daí são avaliados pela classe gerada pelo {@link BytecodeCompiler}.
+ *
+ * Uma instância reaproveita a pilha do avaliador, então não deve ser usada
+ * por várias threads ao mesmo tempo.
  *
  * @author Caio
  */
 public class FunctionEvaluator {
-    private final List<Token> postfixTokens;
+    private static final int FLUSH_INTERVAL = 256;
+
+    private final Program program;
+    private final PostfixEvaluator evaluator = new PostfixEvaluator();
+    private final double[] variables;
+    private final int xSlot;
+    // Falso para funções de outras variáveis além de x
+    private final boolean onlyX;
+    private final boolean[] parameterSet;
+    // Variáveis além de x ainda sem valor: as formas com um único x exigem que todas tenham
+    private int unsetParameters;
+    private final CompiledExpression compiled;
+    private DoubleUnaryOperator function;
+    // Avaliações ainda não repassadas à expressão compilada
+    private int pendingPoints;
+    private BatchEvaluator batch;
+    private double[] rangeXs;
+    private double[] rangeOut;
 
     public FunctionEvaluator(String expression) throws ExpressionException {
-        // Pré-processa a expressão uma única vez no construtor.
-        ExpressionParser parser = new ExpressionParser();
-        ShuntingYardAlgorithm shuntingYard = new ShuntingYardAlgorithm();
+        // A forma compilada vem do cache compartilhado: só é processada na primeira vez.
+        this(CompiledExpressionCache.shared().get(expression));
+    }
 
-        List<Token> infixTokens = parser.tokenize(expression);
-        parser.validateTokenSequence(infixTokens);
-        this.postfixTokens = shuntingYard.convertToPostfix(infixTokens);
+    public FunctionEvaluator(CompiledExpression compiled) {
+        this.program = compiled.getProgram();
+        this.variables = new double[program.getVariableCount()];
+        this.xSlot = program.slotOf("x");
+        this.onlyX = program.getVariableCount() <= (xSlot >= 0 ? 1 : 0);
+        this.parameterSet = new boolean[program.getVariableCount()];
+        this.unsetParameters = program.getVariableCount() - (xSlot >= 0 ? 1 : 0);
+        this.compiled = compiled;
+        this.function = compiled.getCompiledFunction();
     }
 
     // Método de avaliação RÁPIDA
     public double evaluate(double x) {
-        // Usa o PostfixEvaluator para avaliar a expressão para um dado 'x'.
-        PostfixEvaluator evaluator = new PostfixEvaluator();
-        
-        // Substitui a variável 'x' na lista de tokens por um token de número
-        List<Token> tokensWithX = new java.util.ArrayList<>(this.postfixTokens);
-        for (int i = 0; i < tokensWithX.size(); i++) {
-            if (tokensWithX.get(i).getType() == TokenType.VARIABLE) {
-                tokensWithX.set(i, new Token(TokenType.VARIABLE, Double.toString(x)) {});
+        // A função gerada só existe para programas de uma variável; com parâmetros, ela não é de x
+        if (function != null && onlyX) {
+            return function.applyAsDouble(x);
+        }
+        if (unsetParameters != 0) {
+            throw unsetParameter();
+        }
+        // A contagem é repassada em lotes para não disputar o contador compartilhado a cada ponto
+        if (++pendingPoints == FLUSH_INTERVAL) {
+            pendingPoints = 0;
+            function = compiled.recordEvaluations(FLUSH_INTERVAL, FLUSH_INTERVAL);
+        }
+        if (xSlot >= 0) {
+            variables[xSlot] = x;
+        }
+        return evaluator.evaluate(program, variables);
+    }
+
+    /**
+     * Fixa o valor de um parâmetro (uma variável além de x) para as avaliações seguintes
+     * de {@link #evaluate(double)}, {@link #evaluate(double[], double[])} e {@link #evaluateRange}.
+     * Não recompila nada nem aloca: o valor vai direto para o slot da variável.
+     *
+     * @throws IllegalArgumentException Se a expressão não tiver o parâmetro.
+     */
+    public void setParameter(String name, double value) {
+        int slot = program.slotOf(name);
+        if (slot < 0 || slot == xSlot) {
+            throw new IllegalArgumentException("Parâmetro desconhecido: '" + name + "' (parâmetros: " + getParameters() + ")");
+        }
+        if (!parameterSet[slot]) {
+            parameterSet[slot] = true;
+            unsetParameters--;
+        }
+        variables[slot] = value;
+        if (batch != null) {
+            batch.setParameter(slot, value);
+        }
+    }
+
+    /**
+     * @return Os nomes das variáveis além de x, na ordem de seus slots.
+     */
+    public List<String> getParameters() {
+        List<String> parameters = new ArrayList<>(program.getVariables());
+        if (xSlot >= 0) {
+            parameters.remove(xSlot);
+        }
+        return parameters;
+    }
+
+    private ExpressionException unsetParameter() {
+        for (int k = 0; k < parameterSet.length; k++) {
+            if (k != xSlot && !parameterSet[k]) {
+                return new ExpressionException("Variável '" + program.getVariables().get(k) + "' sem valor definido.");
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Avalia a função com {@code vars[k]} como valor da variável do slot {@code k}
+     * ({@link CompiledExpression#getVariables()}). Como {@link #evaluate(double)}, não aloca
+     * nada depois da primeira chamada.
+     *
+     * @throws ExpressionException Se faltar o valor de alguma variável ou o cálculo resultar em erro.
+     */
+    public double evaluate(double[] vars) {
+        if (vars.length < variables.length) {
+            throw new ExpressionException("Variável '" + program.getVariables().get(vars.length) + "' sem valor definido.");
+        }
+        if (function != null) {
+            // Só programas de no máximo uma variável são compilados, e ela ocupa o slot 0
+            return function.applyAsDouble(vars.length > 0 ? vars[0] : 0);
+        }
+        if (++pendingPoints == FLUSH_INTERVAL) {
+            pendingPoints = 0;
+            function = compiled.recordEvaluations(FLUSH_INTERVAL, FLUSH_INTERVAL);
+        }
+        return evaluator.evaluate(program, vars);
+    }
+
+    /**
+     * Avalia a função em todos os pontos de {@code xs} de uma vez ({@code out[i] = f(xs[i])}).
+     * O programa é executado instrução por instrução sobre blocos de pontos, o que
+     * é bem mais rápido que chamar {@link #evaluate(double)} para cada ponto.
+     * O resultado é idêntico, bit a bit, ao da avaliação ponto a ponto.
+     *
+     * @throws ExpressionException Se algum ponto gerar erro (ex: divisão por zero), como na avaliação individual.
+     */
+    public void evaluate(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("O vetor de saída é menor que o de entrada: " + out.length + " < " + xs.length);
+        }
+        evaluate(xs, out, xs.length);
+    }
+
+    /**
+     * Avalia a função em {@code out.length} pontos de uma vez, com {@code columns[k][i]} como valor
+     * da variável do slot {@code k} no ponto {@code i}. Colunas de variáveis que a expressão não usa
+     * podem ser {@code null}. O resultado é idêntico, bit a bit, ao de {@link #evaluate(double[])}.
+     *
+     * @throws ExpressionException Se faltar a coluna de uma variável usada ou algum ponto gerar erro.
+     */
+    public void evaluate(double[][] columns, double[] out) {
+        int n = out.length;
+        for (int k = 0; k < Math.min(columns.length, variables.length); k++) {
+            if (columns[k] != null && columns[k].length < n) {
+                throw new IllegalArgumentException("A coluna da variável '" + program.getVariables().get(k)
+                                                   + "' é menor que o vetor de saída: " + columns[k].length + " < " + n);
+            }
+        }
+        if (function == null) {
+            function = compiled.recordEvaluations(1, n);
+        }
+        if (function != null && variables.length == 1 && columns.length > 0 && columns[0] != null) {
+            double[] column = columns[0];
+            for (int i = 0; i < n; i++) {
+                out[i] = function.applyAsDouble(column[i]);
+            }
+            return;
+        }
+        batch().evaluate(columns, out, 0, n);
+    }
+
+    private void evaluate(double[] xs, double[] out, int n) {
+        if (unsetParameters != 0) {
+            throw unsetParameter();
+        }
+        if (function == null) {
+            function = compiled.recordEvaluations(1, n);
+        }
+        if (function != null && onlyX) {
+            // A classe gerada já é compilada pelo JIT: o laço simples supera a execução em blocos
+            for (int i = 0; i < n; i++) {
+                out[i] = function.applyAsDouble(xs[i]);
             }
+            return;
         }
-        
-        return evaluator.evaluate(tokensWithX);
+        batch().evaluate(xs, out, 0, n);
+    }
+
+    private BatchEvaluator batch() {
+        if (batch == null) {
+            batch = new BatchEvaluator(program, xSlot);
+            for (int k = 0; k < parameterSet.length; k++) {
+                if (parameterSet[k]) {
+                    batch.setParameter(k, variables[k]);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Avalia as amostras {@code from <= i < to} do intervalo {@code [xMin, xMax]} dividido em
+     * {@code samples} pontos igualmente espaçados ({@link #sampleX}), escrevendo {@code out[i]}.
+     * Os valores de x são gerados em blocos, sem criar um vetor com o intervalo inteiro.
+     *
+     * @throws ExpressionException Se algum ponto gerar erro; os pontos anteriores já estarão em {@code out}
+     *                             e os posteriores ficam indefinidos.
+     */
+    public void evaluateRange(double xMin, double xMax, int samples, double[] out, int from, int to) {
+        if (from < 0 || to > samples || from > to || out.length < to) {
+            throw new IllegalArgumentException("Faixa inválida [" + from + ", " + to + ") para " + samples
+                                               + " amostras e saída de tamanho " + out.length);
+        }
+        if (rangeXs == null) {
+            rangeXs = new double[BatchEvaluator.BLOCK_SIZE];
+            rangeOut = new double[BatchEvaluator.BLOCK_SIZE];
+        }
+        for (int start = from; start < to; start += BatchEvaluator.BLOCK_SIZE) {
+            int n = Math.min(BatchEvaluator.BLOCK_SIZE, to - start);
+            for (int i = 0; i < n; i++) {
+                rangeXs[i] = sampleX(xMin, xMax, samples, start + i);
+            }
+            try {
+                evaluate(rangeXs, rangeOut, n);
+            } finally {
+                // Em caso de erro, rangeOut já tem os pontos anteriores ao que falhou
+                System.arraycopy(rangeOut, 0, out, start, n);
+            }
+        }
+    }
+
+    /**
+     * @return O i-ésimo de {@code samples} pontos igualmente espaçados em {@code [xMin, xMax]}.
+     */
+    public static double sampleX(double xMin, double xMax, int samples, int i) {
+        return samples == 1 ? xMin : xMin + (xMax - xMin) * i / (samples - 1);
     }
 }
@@ -0,0 +1,124 @@
+package calcgraph.model.evaluator;
+
+/**
+ * Códigos de operação de um {@link Program}.
+ * Operadores e funções são resolvidos para um código inteiro uma única vez,
+ * na montagem do programa; a avaliação só faz {@code switch} sobre inteiros.
+ */
+public final class Opcode {
+
+    // Operandos: seguidos de um índice (constante ou slot de variável)
+    public static final int PUSH_CONST = 0;
+    public static final int LOAD_VAR = 1;
+
+    // Operadores binários
+    public static final int ADD = 2;
+    public static final int SUB = 3;
+    public static final int MUL = 4;
+    public static final int DIV = 5;
+    public static final int POW = 6;
+
+    // Operador pós-fixo '!'
+    public static final int FACT = 7;
+
+    // Funções de um argumento
+    public static final int SIN = 8;
+    public static final int COS = 9;
+    public static final int TAN = 10;
+    public static final int LOG = 11;
+    public static final int LN = 12;
+    public static final int SQRT = 13;
+    public static final int ABS = 14;
+    public static final int CEIL = 15;
+    public static final int FLOOR = 16;
+    public static final int FAT = 17;
+
+    // Funções estatísticas: seguidas da quantidade de argumentos
+    public static final int MEAN = 18;
+    public static final int MODE = 19;
+    public static final int MEDIAN = 20;
+    public static final int VARIANCE = 21;
+    public static final int STANDARD_DEVIATION = 22;
+    public static final int Z = 23;
+    public static final int T = 24;
+    public static final int PA = 25;
+    public static final int PG = 26;
+
+    // Gerado pelo otimizador no lugar de "e^2": e * e
+    public static final int SQUARE = 27;
+
+    // Subexpressões comuns: seguidos do índice do temporário.
+    // STORE_TEMP copia o topo da pilha sem desempilhar; LOAD_TEMP empilha o valor guardado.
+    public static final int STORE_TEMP = 28;
+    public static final int LOAD_TEMP = 29;
+
+    private static final String[] NAMES = {
+        "PUSH_CONST", "LOAD_VAR",
+        "ADD", "SUB", "MUL", "DIV", "POW", "FACT",
+        "SIN", "COS", "TAN", "LOG", "LN", "SQRT", "ABS", "CEIL", "FLOOR", "FAT",
+        "MEAN", "MODE", "MEDIAN", "VARIANCE", "STANDARD_DEVIATION", "Z", "T", "PA", "PG",
+        "SQUARE", "STORE_TEMP", "LOAD_TEMP"
+    };
+
+    private Opcode() {
+    }
+
+    /**
+     * @return O código do operador, ou -1 se o operador for desconhecido.
+     */
+    public static int forOperator(String operator) {
+        switch (operator) {
+            case "+": return ADD;
+            case "-": return SUB;
+            case "*": return MUL;
+            case "/": return DIV;
+            case "^": return POW;
+            case "!": return FACT;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return O código da função (nome sem distinção de maiúsculas), ou -1 se for desconhecida.
+     */
+    public static int forFunction(String functionName) {
+        switch (functionName.toLowerCase()) {
+            case "sin": return SIN;
+            case "cos": return COS;
+            case "tan": return TAN;
+            case "log": return LOG;
+            case "ln": return LN;
+            case "sqrt": return SQRT;
+            case "abs": return ABS;
+            case "ceil": return CEIL;
+            case "floor": return FLOOR;
+            case "fat": return FAT;
+            case "mean": return MEAN;
+            case "mode": return MODE;
+            case "median": return MEDIAN;
+            case "variance": return VARIANCE;
+            case "standarddeviation": return STANDARD_DEVIATION;
+            case "z": return Z;
+            case "t": return T;
+            case "pa": return PA;
+            case "pg": return PG;
+            default: return -1;
+        }
+    }
+
+    public static boolean isStatistic(int opcode) {
+        return opcode >= MEAN && opcode <= PG;
+    }
+
+    /**
+     * @return Quantos inteiros a instrução ocupa no código (o opcode mais seus operandos).
+     */
+    public static int length(int opcode) {
+        return opcode == PUSH_CONST || opcode == LOAD_VAR || opcode == STORE_TEMP || opcode == LOAD_TEMP
+               || isStatistic(opcode) ? 2 : 1;
+    }
+
+    public static String name(int opcode) {
+        return opcode >= 0 && opcode < NAMES.length ? NAMES[opcode] : "OP_" + opcode;
+    }
+}
@@ -0,0 +1,117 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Avaliação paralela de uma função sobre um intervalo {@code [xMin, xMax]} amostrado
+ * em pontos igualmente espaçados (tabelas de valores, plotagem em alta resolução).
+ *
+ * O intervalo é dividido recursivamente em faixas de índices em um {@link ForkJoinPool};
+ * cada faixa é avaliada em lote por um {@link FunctionEvaluator} próprio e escreve
+ * direto na sua parte do vetor de saída compartilhado. Como cada amostra depende só do
+ * seu índice, o resultado é idêntico, bit a bit, ao de
+ * {@link FunctionEvaluator#evaluateRange} em uma única thread, qualquer que seja a divisão.
+ *
+ * Se algum ponto gerar erro, é lançado o erro do menor índice que falhou, o mesmo que a
+ * avaliação sequencial lançaria.
+ */
+public final class ParallelRangeEvaluator {
+
+    // Faixas menores que isso não compensam o custo de uma tarefa
+    static final int MIN_CHUNK = 4 * BatchEvaluator.BLOCK_SIZE;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Usa o {@link ForkJoinPool#commonPool()}.
+     */
+    public ParallelRangeEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelRangeEvaluator(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("O pool de threads não pode ser nulo.");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * @return Os valores da função nas {@code samples} amostras de {@code [xMin, xMax]}.
+     */
+    public double[] evaluate(CompiledExpression expression, double xMin, double xMax, int samples) {
+        double[] out = new double[samples];
+        evaluate(expression, xMin, xMax, samples, out);
+        return out;
+    }
+
+    /**
+     * Escreve em {@code out[i]} o valor da função na amostra {@code i} de {@code [xMin, xMax]}.
+     *
+     * @throws ExpressionException Se algum ponto gerar erro (o de menor índice).
+     */
+    public void evaluate(CompiledExpression expression, double xMin, double xMax, int samples, double[] out) {
+        if (samples < 0 || out.length < samples) {
+            throw new IllegalArgumentException("Quantidade de amostras inválida: " + samples
+                                               + " (saída de tamanho " + out.length + ")");
+        }
+        // Algumas faixas por thread, para equilibrar a carga entre trechos mais caros e mais baratos
+        int chunk = Math.max(MIN_CHUNK, samples / (pool.getParallelism() * 4) + 1);
+        RangeTask task = new RangeTask(expression, xMin, xMax, samples, out, 0, samples, chunk);
+        pool.invoke(task);
+        if (task.failure != null) {
+            throw task.failure;
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledExpression expression;
+        private final double xMin;
+        private final double xMax;
+        private final int samples;
+        private final double[] out;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        // Erro do menor índice desta faixa; lido pela tarefa pai depois do join
+        private RuntimeException failure;
+
+        RangeTask(CompiledExpression expression, double xMin, double xMax, int samples,
+                  double[] out, int from, int to, int chunk) {
+            this.expression = expression;
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.samples = samples;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                try {
+                    new FunctionEvaluator(expression).evaluateRange(xMin, xMax, samples, out, from, to);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(expression, xMin, xMax, samples, out, from, middle, chunk);
+            RangeTask right = new RangeTask(expression, xMin, xMax, samples, out, middle, to, chunk);
+            invokeAll(left, right);
+            failure = left.failure != null ? left.failure : right.failure;
+        }
+    }
+}
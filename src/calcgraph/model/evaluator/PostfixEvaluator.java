@@ -3,16 +3,16 @@ package calcgraph.model.evaluator;
 import calcgraph.model.exception.ExpressionException;
 import calcgraph.model.token.Token;
 import calcgraph.model.token.TokenType;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-
-import java.util.Stack;
 
 public class PostfixEvaluator {
 
+    // Pilha reaproveitada pela avaliação de programas.
+    // Por isso uma instância não deve ser usada por várias threads ao mesmo tempo.
+    private double[] stack = new double[16];
+    private double[] temps = new double[0];
+
     /**
      * Avalia uma lista de tokens na notação pós-fixada e retorna o resultado.
      *
@@ -34,65 +34,58 @@ public class PostfixEvaluator {
     }
     
     public double evaluate(List<Token> postfixTokens) {
-        Stack<Double> operandStack = new Stack<>();
+        double[] operandStack = new double[postfixTokens.size()];
+        int size = 0;
 
         for (Token token : postfixTokens) {
             if (token.getType() == TokenType.NUMBER || token.getType() == TokenType.VARIABLE) {
                 try {
-                    operandStack.push(Double.parseDouble(token.getValue()));
+                    operandStack[size++] = Double.parseDouble(token.getValue());
                     
                 } catch (NumberFormatException e) {
                     throw new ExpressionException("Número inválido: " + token.getValue(), e);
                 }
             } else if (token.getType() == TokenType.CONSTANT) { 
                 if (token.getValue().equalsIgnoreCase("pi")) {
-                    operandStack.push(Math.PI);
+                    operandStack[size++] = Math.PI;
                     
                 } else if (token.getValue().equalsIgnoreCase("e")) {
-                    operandStack.push(Math.E);
+                    operandStack[size++] = Math.E;
                     
                 } else {
                     throw new ExpressionException("Constante desconhecida: " + token.getValue());
                 }
             } else if (token.getType() == TokenType.OPERATOR) {
                 if (token.getValue().equals("!")) {
-                    if (operandStack.isEmpty()) {
+                    if (size == 0) {
                         throw new ExpressionException("Sintaxe inválida: operador '!' requer um operando.");
                     }
-                    double operand = operandStack.pop();
-                    operandStack.push(applyOperator("!", operand, 0.0));
+                    operandStack[size - 1] = applyOperator("!", operandStack[size - 1], 0.0);
                     continue;
                 }
-                if (operandStack.size() < 2) {
+                if (size < 2) {
                     throw new ExpressionException("Sintaxe inválida: operador '" + token.getValue() + "' requer dois operandos.");
                 }
-                double operand2 = operandStack.pop();
-                double operand1 = operandStack.pop();
-                double result = applyOperator(token.getValue(), operand1, operand2);
-                operandStack.push(result);
+                size--;
+                operandStack[size - 1] = applyOperator(token.getValue(), operandStack[size - 1], operandStack[size]);
                 
             } else if (token.getType() == TokenType.FUNCTION) {
                 String functionName = token.getValue().toLowerCase();
                 
                 if (isMultiArgumentFunction(functionName)) {
-                    List<Double> arguments = new ArrayList<>();
-                    // Enquanto a pilha não estiver vazia, desempilha e adiciona à lista
-                    
-                    for(int i=0; i<token.getArguments();i++){
-                        arguments.add(operandStack.pop());
+                    // Os argumentos são o topo da pilha, na ordem em que foram empilhados
+                    int arity = token.getArguments();
+                    if (size < arity) {
+                        throw new ExpressionException("Sintaxe inválida: função '" + token.getValue() + "' requer " + arity + " operandos.");
                     }
-             
-                    // A lista de argumentos está na ordem inversa, então vamos reverter
-                    Collections.reverse(arguments);
-                    double result = applyStatistic(functionName, arguments);
-                    operandStack.push(result);
+                    size -= arity;
+                    operandStack[size] = applyStatistic(Opcode.forFunction(functionName), operandStack, size, arity);
+                    size++;
                 }else{
-                    if (operandStack.isEmpty()) {
+                    if (size == 0) {
                         throw new ExpressionException("Sintaxe inválida: função '" + token.getValue() + "' requer um operando.");
                     }
-                    double operand = operandStack.pop();
-                    double result = applyFunction(token.getValue(), operand);
-                    operandStack.push(result);
+                    operandStack[size - 1] = applyFunction(token.getValue(), operandStack[size - 1]);
                 }
                 //mean(mode(1,4,4,6,3),mode(4,5,6,6,7))
                
@@ -101,206 +94,327 @@ public class PostfixEvaluator {
             }
         }
 
-        if (operandStack.size() != 1) {
+        if (size != 1) {
             throw new ExpressionException("Sintaxe inválida: expressão pós-fixada resultou em múltiplos valores ou nenhum.");
         }
 
-        return operandStack.pop();
+        return operandStack[0];
+    }
+
+    /**
+     * Avalia um programa sem variáveis.
+     *
+     * @param program O programa montado a partir da expressão.
+     * @return O resultado do cálculo.
+     * @throws ExpressionException Se o cálculo resultar em erro (ex: divisão por zero) ou se o programa usar variáveis.
+     */
+    public double evaluate(Program program) {
+        return evaluate(program, Program.noVariables());
+    }
+
+    /**
+     * Avalia um programa. A pilha já foi validada na montagem, então o laço
+     * só despacha sobre os opcodes inteiros, sem nenhuma manipulação de strings.
+     *
+     * A pilha de operandos é um {@code double[]} do avaliador, dimensionado pela
+     * profundidade máxima do programa e reaproveitado entre chamadas: depois da
+     * primeira avaliação, avaliar o mesmo programa não aloca nenhum objeto
+     * (ver {@link #execute}).
+     *
+     * @param program O programa montado a partir da expressão.
+     * @param variables Os valores das variáveis, indexados pelo slot de cada uma.
+     * @return O resultado do cálculo.
+     * @throws ExpressionException Se o cálculo resultar em erro (ex: divisão por zero).
+     */
+    public double evaluate(Program program, double[] variables) {
+        if (variables.length < program.getVariableCount()) {
+            throw new ExpressionException("Variável '" + program.getVariables().get(variables.length) + "' sem valor definido.");
+        }
+        if (this.stack.length < program.maxStackDepth) {
+            this.stack = new double[program.maxStackDepth];
+        }
+        if (this.temps.length < program.tempCount) {
+            this.temps = new double[program.tempCount];
+        }
+        return execute(program, variables, 0, this.stack, this.temps);
+    }
+
+    /**
+     * Interpretador sem estado: toda a memória da avaliação vem do chamador, então a mesma
+     * chamada pode rodar em várias threads ao mesmo tempo, cada uma com sua pilha.
+     *
+     * @param variables Os valores das variáveis por slot, já conferidos pelo chamador; com
+     *                  {@code null}, toda variável lida vale {@code x} (programas de uma variável).
+     * @param stack Pilha com pelo menos {@code program.maxStackDepth} posições.
+     * @param temps Temporários com pelo menos {@code program.tempCount} posições.
+     */
+    static double execute(Program program, double[] variables, double x, double[] stack, double[] temps) {
+        int[] code = program.code;
+        double[] constants = program.constants;
+        int sp = 0;
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case Opcode.PUSH_CONST:
+                    stack[sp++] = constants[code[pc++]];
+                    break;
+                case Opcode.LOAD_VAR: {
+                    int slot = code[pc++];
+                    stack[sp++] = variables != null ? variables[slot] : x;
+                    break;
+                }
+                case Opcode.STORE_TEMP:
+                    temps[code[pc++]] = stack[sp - 1];
+                    break;
+                case Opcode.LOAD_TEMP:
+                    stack[sp++] = temps[code[pc++]];
+                    break;
+                case Opcode.ADD:
+                case Opcode.SUB:
+                case Opcode.MUL:
+                case Opcode.DIV:
+                case Opcode.POW:
+                    sp--;
+                    stack[sp - 1] = applyBinary(opcode, stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.FACT:
+                    stack[sp - 1] = factorial(stack[sp - 1]);
+                    break;
+                case Opcode.MEAN:
+                case Opcode.MODE:
+                case Opcode.MEDIAN:
+                case Opcode.VARIANCE:
+                case Opcode.STANDARD_DEVIATION:
+                case Opcode.Z:
+                case Opcode.T:
+                case Opcode.PA:
+                case Opcode.PG:
+                    int arity = code[pc++];
+                    sp -= arity;
+                    stack[sp] = applyStatistic(opcode, stack, sp, arity);
+                    sp++;
+                    break;
+                default:
+                    stack[sp - 1] = applyFunction(opcode, stack[sp - 1]);
+                    break;
+            }
+        }
+
+        return stack[0];
     }
 
     /**
      * Aplica a operação matemática.
      */
     private double applyOperator(String operator, double operand1, double operand2) {
-        switch (operator) {
-            case "+": return operand1 + operand2;
-            case "-": return operand1 - operand2;
-            case "*": return operand1 * operand2;
-            case "/":
-                if (operand2 == 0) {
-                    throw new ExpressionException("Divisão por zero.");
-                }
-                return operand1 / operand2;
-            case "^": return Math.pow(operand1, operand2);
-            case "!":
-                if (operand1 < 0) {
-                    throw new ExpressionException("O fatorial não está definido para números negativos.");
-                }
-                if (operand1 != Math.floor(operand1)) {
-                    throw new ExpressionException("O fatorial só é definido para inteiros.");
-                }
-                double result = 1;
-                for (int i = 2; i <= (int) operand1; i++) {
-                    result *= i;
-                }
-                return result;
-            default: throw new ExpressionException("Operador desconhecido: " + operator);
+        int opcode = Opcode.forOperator(operator);
+        if (opcode < 0) {
+            throw new ExpressionException("Operador desconhecido: " + operator);
         }
+        return opcode == Opcode.FACT ? factorial(operand1) : applyBinary(opcode, operand1, operand2);
+    }
+
+    static double applyBinary(int opcode, double operand1, double operand2) {
+        switch (opcode) {
+            case Opcode.ADD: return operand1 + operand2;
+            case Opcode.SUB: return operand1 - operand2;
+            case Opcode.MUL: return operand1 * operand2;
+            case Opcode.DIV: return divide(operand1, operand2);
+            case Opcode.POW: return Math.pow(operand1, operand2);
+            default: throw new ExpressionException("Operador desconhecido: " + Opcode.name(opcode));
+        }
+    }
+
+    static double divide(double operand1, double operand2) {
+        if (operand2 == 0) {
+            throw new ExpressionException("Divisão por zero.");
+        }
+        return operand1 / operand2;
+    }
+
+    static double factorial(double operand) {
+        if (operand < 0) {
+            throw new ExpressionException("O fatorial não está definido para números negativos.");
+        }
+        if (operand != Math.floor(operand)) {
+            throw new ExpressionException("O fatorial só é definido para inteiros.");
+        }
+        double result = 1;
+        for (int i = 2; i <= (int) operand; i++) {
+            result *= i;
+        }
+        return result;
     }
 
     /**
      * Aplica a função matemática.
      */
     private double applyFunction(String functionName, double operand) {
-        switch (functionName.toLowerCase()) {
-            case "sin": return Math.sin(operand);
-            case "cos": return Math.cos(operand);
-            case "tan": return Math.tan(operand);
-            case "log": return Math.log10(operand); // Logaritmo base 10
-            case "ln": return Math.log(operand);   // Logaritmo natural
-            case "sqrt": return Math.sqrt(operand);
-            case "abs": return Math.abs(operand);
-            case "ceil": return Math.ceil(operand);
-            case "floor": return Math.floor(operand);
-            case "fat": 
-                if (operand < 0) {
-                    throw new IllegalArgumentException("O fatorial não está definido para números negativos.");
-                }
-                long fatorial = 1;
-                for (int i = 2; i <= operand; i++) {
-                    fatorial *= i;
-                }
-                return fatorial;
-            default: throw new ExpressionException("Função desconhecida: " + functionName);
+        int opcode = Opcode.forFunction(functionName);
+        if (opcode < 0 || Opcode.isStatistic(opcode)) {
+            throw new ExpressionException("Função desconhecida: " + functionName);
         }
+        return applyFunction(opcode, operand);
+    }
+
+    static double applyFunction(int opcode, double operand) {
+        switch (opcode) {
+            case Opcode.SIN: return Math.sin(operand);
+            case Opcode.COS: return Math.cos(operand);
+            case Opcode.TAN: return Math.tan(operand);
+            case Opcode.LOG: return Math.log10(operand); // Logaritmo base 10
+            case Opcode.LN: return Math.log(operand);   // Logaritmo natural
+            case Opcode.SQRT: return Math.sqrt(operand);
+            case Opcode.ABS: return Math.abs(operand);
+            case Opcode.CEIL: return Math.ceil(operand);
+            case Opcode.FLOOR: return Math.floor(operand);
+            case Opcode.FAT: return fat(operand);
+            case Opcode.SQUARE: return operand * operand;
+            default: throw new ExpressionException("Função desconhecida: " + Opcode.name(opcode));
+        }
+    }
+
+    static double fat(double operand) {
+        if (operand < 0) {
+            throw new IllegalArgumentException("O fatorial não está definido para números negativos.");
+        }
+        long fatorial = 1;
+        for (int i = 2; i <= operand; i++) {
+            fatorial *= i;
+        }
+        return fatorial;
+    }
+
+    /**
+     * Aplica a função estatística sobre todos os valores do vetor.
+     */
+    static double applyStatistic(int opcode, double[] values) throws ExpressionException {
+        return applyStatistic(opcode, values, 0, values.length);
     }
-    private double applyStatistic (String functionName, List<Double> numbers)throws ExpressionException{
-       switch(functionName.toLowerCase()){
-            case "mean":
-            if(numbers.isEmpty()){
+
+    /**
+     * Aplica a função estatística sobre a fatia {@code values[from, from + count)}.
+     * A fatia pode ser reordenada (a mediana e a moda ordenam no próprio lugar), pois seus
+     * valores são desempilhados pelo chamador.
+     */
+    static double applyStatistic(int opcode, double[] values, int from, int count) throws ExpressionException {
+       int to = from + count;
+       switch(opcode){
+            case Opcode.MEAN:
+            if(count == 0){
                 throw new ExpressionException("Não é possível calcular a média de uma lista vazia");
             }
             double sum = 0.0;
-            for(double number : numbers){
-                sum += number;
+            for(int i = from; i < to; i++){
+                sum += values[i];
             }
             
-            return sum / numbers.size();
-            case "mode":
-                if(numbers.isEmpty()){
+            return sum / count;
+            case Opcode.MODE:
+                if(count == 0){
                     throw new ExpressionException("Não é possível calcular a moda de uma lista vazia.");
                 }
-                Map<Double, Integer> frequencyMap = new HashMap<>();
-                for (double number : numbers) {
-                    frequencyMap.put(number, frequencyMap.getOrDefault(number, 0) + 1);
-                }
-                
-                double mode = 0.0;
-                int maxFrequency = 0;
-
-                for (Map.Entry<Double, Integer> entry : frequencyMap.entrySet()) {
-                
-                    if (entry.getValue() > maxFrequency) {
-                    maxFrequency = entry.getValue();
-                    mode = entry.getKey();
-                    }
-                }
-                if (maxFrequency <= 1 && numbers.size() > 1) {
-                    throw new ExpressionException("Não há uma única moda definida para a lista.");
-                }
-            return mode;
-            case "median":
-                if (numbers.isEmpty()) {
+                return mode(values, from, count);
+            case Opcode.MEDIAN:
+                if (count == 0) {
                     throw new ExpressionException("Não é possível calcular a mediana de uma lista vazia.");
                 }
-                // 1. Crie uma cópia para não modificar a lista original
-                List<Double> sortedNumbers = new ArrayList<>(numbers);
-                // 2. Ordene a lista
-                Collections.sort(sortedNumbers);
-                int size = sortedNumbers.size();
-                // 3. Verifique se o tamanho é ímpar
-                if (size % 2 != 0) {
+                // Ordena a própria fatia (mesma ordem total de Double.compare usada antes por Collections.sort)
+                Arrays.sort(values, from, to);
+                // Verifique se o tamanho é ímpar
+                if (count % 2 != 0) {
                 // A mediana é o elemento do meio
-                    return sortedNumbers.get(size / 2);
+                    return values[from + count / 2];
                 } 
                 else {
-                // 4. Verifique se o tamanho é par
                 // A mediana é a média dos dois elementos do meio
-                    int middleIndex1 = (size / 2) - 1;
-                    int middleIndex2 = size / 2;
-                    return (sortedNumbers.get(middleIndex1) + sortedNumbers.get(middleIndex2)) / 2.0;
+                    int middleIndex1 = from + (count / 2) - 1;
+                    int middleIndex2 = from + count / 2;
+                    return (values[middleIndex1] + values[middleIndex2]) / 2.0;
                 }
                 
-            case "variance":
-                if (numbers.isEmpty()) {
+            case Opcode.VARIANCE:
+                if (count == 0) {
                     throw new ExpressionException("Não é possível calcular a variância de uma lista vazia.");
                 }
             
                 double mean = 0.0;
-                for (double number : numbers) {
-                    mean += number;
+                for (int i = from; i < to; i++) {
+                    mean += values[i];
                 }
-                mean = mean / numbers.size();
+                mean = mean / count;
             
                 double squaredDifferencesSum = 0.0;
-                for (double number : numbers) {
-                    double difference = number - mean;
+                for (int i = from; i < to; i++) {
+                    double difference = values[i] - mean;
                     squaredDifferencesSum += difference * difference;
                 }
             
-                return squaredDifferencesSum / numbers.size();
+                return squaredDifferencesSum / count;
                 
-            case "standarddeviation":
-                if (numbers.isEmpty()) {
+            case Opcode.STANDARD_DEVIATION:
+                if (count == 0) {
                     throw new ExpressionException("Não é possível calcular o desvio padrão de uma lista vazia.");
                 }
 
                 double variance = 0.0;
                 double meanStdDev = 0.0;
-                for (double number : numbers) {
-                meanStdDev += number;
+                for (int i = from; i < to; i++) {
+                meanStdDev += values[i];
                 }
-                meanStdDev = meanStdDev / numbers.size();
+                meanStdDev = meanStdDev / count;
             
                 double squaredDifferencesSumStdDev = 0.0;
-                for (double number : numbers) {
-                    double difference = number - meanStdDev;
+                for (int i = from; i < to; i++) {
+                    double difference = values[i] - meanStdDev;
                     squaredDifferencesSumStdDev += difference * difference;
                 }
-                variance = squaredDifferencesSumStdDev / numbers.size();
+                variance = squaredDifferencesSumStdDev / count;
 
                 return Math.sqrt(variance);
-            case "z":
-                if(numbers.size() != 4){
+            case Opcode.Z:
+                if(count != 4){
                     throw new ExpressionException("Para calcular a Hipótese Z, a lista deve ter exatamente 4 elementos: [média da amostra (X), média da população (μ), desvio padrão populacional (σ), tamanho da amostra (n)]");
                 }
-                double media_amostraZ = numbers.get(0);
-                double media_populacaoZ = numbers.get(1);
-                double desvio_padrao_populacaoZ = numbers.get(2);
-                double tamanho_amostraZ = numbers.get(3);
+                double media_amostraZ = values[from];
+                double media_populacaoZ = values[from + 1];
+                double desvio_padrao_populacaoZ = values[from + 2];
+                double tamanho_amostraZ = values[from + 3];
                 
                 return (media_amostraZ - media_populacaoZ) / (desvio_padrao_populacaoZ/Math.sqrt(tamanho_amostraZ));
                 
-            case "t":
-                if(numbers.size() != 4){
+            case Opcode.T:
+                if(count != 4){
                     throw new ExpressionException("Para calcular a Hipótese T, a lista deve ter exatamente 4 elementos: [média da amostra (X), média da população (μ), desvio padrão amostral (s), tamanho da amostra (n)]");
                 }
-                double media_amostraT = numbers.get(0);
-                double media_populacaoT = numbers.get(1);
-                double desvio_padrao_amostraT = numbers.get(2);
-                double tamanho_amostraT = numbers.get(3);
+                double media_amostraT = values[from];
+                double media_populacaoT = values[from + 1];
+                double desvio_padrao_amostraT = values[from + 2];
+                double tamanho_amostraT = values[from + 3];
                 
                 return (media_amostraT - media_populacaoT) / (desvio_padrao_amostraT/Math.sqrt(tamanho_amostraT));
-            case "pa":
-                if (numbers.size() != 3) {
+            case Opcode.PA:
+                if (count != 3) {
                     throw new ExpressionException("A função 'PA' requer 3 argumentos: (a1, n, r).");
                 }
-                double a1PA = numbers.get(0);
-                double nPA = numbers.get(1);
-                double r = numbers.get(2);
+                double a1PA = values[from];
+                double nPA = values[from + 1];
+                double r = values[from + 2];
                 
                 if (nPA != Math.floor(nPA) || nPA <= 0) {
                     throw new ExpressionException("O número de termos (n) da PA deve ser um inteiro positivo.");
                 }
                 
                 return a1PA + (nPA - 1) * r;
-            case "pg":
-                if (numbers.size() != 3) {
+            case Opcode.PG:
+                if (count != 3) {
                     throw new ExpressionException("A função 'PG' requer 3 argumentos: (a1, n, q).");
                 }
-                double a1PG = numbers.get(0);
-                double nPG = numbers.get(1);
-                double q = numbers.get(2);
+                double a1PG = values[from];
+                double nPG = values[from + 1];
+                double q = values[from + 2];
                 
                 if (nPG != Math.floor(nPG) || nPG <= 0) {
                     throw new ExpressionException("O número de termos (n) da PG deve ser um inteiro positivo.");
@@ -308,7 +422,37 @@ public class PostfixEvaluator {
                 
                 return  a1PG * Math.pow(q, nPG-1);
             default:
-                throw new ExpressionException("Função estatística desconhecida: " + functionName);
+                throw new ExpressionException("Função estatística desconhecida: " + Opcode.name(opcode));
        }    
    }
-}
\ No newline at end of file
+
+    /**
+     * Moda sem alocação: ordena a própria fatia e conta as sequências de valores iguais
+     * (bit a bit, como {@link Double#equals}). Em empate, vence o menor valor na ordem de
+     * {@link Double#compare}.
+     */
+    private static double mode(double[] values, int from, int count) {
+        int to = from + count;
+        Arrays.sort(values, from, to);
+        double mode = values[from];
+        int maxFrequency = 0;
+        int i = from;
+        while (i < to) {
+            long bits = Double.doubleToLongBits(values[i]);
+            int j = i + 1;
+            while (j < to && Double.doubleToLongBits(values[j]) == bits) {
+                j++;
+            }
+            // Só uma frequência maior troca a moda: em empate fica o menor, que veio antes
+            if (j - i > maxFrequency) {
+                maxFrequency = j - i;
+                mode = values[i];
+            }
+            i = j;
+        }
+        if (maxFrequency <= 1 && count > 1) {
+            throw new ExpressionException("Não há uma única moda definida para a lista.");
+        }
+        return mode;
+    }
+}
@@ -0,0 +1,223 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Programa compacto equivalente a uma lista de tokens pós-fixados.
+ *
+ * O código é um {@code int[]} de instruções ({@link Opcode}) e seus operandos;
+ * números e constantes ficam pré-convertidos em um {@code double[]} e variáveis
+ * são resolvidas para slots numerados. A montagem valida a pilha de operandos,
+ * então a avaliação não precisa checar nada nem manipular strings.
+ *
+ * Instâncias são imutáveis.
+ */
+public final class Program {
+
+    private static final double[] NO_VARIABLES = new double[0];
+
+    final int[] code;
+    final double[] constants;
+    final int maxStackDepth;
+    final int maxArity;
+    // Temporários das subexpressões comuns (ver ProgramOptimizer)
+    final int tempCount;
+    private final String[] variables;
+
+    Program(int[] code, double[] constants, int maxStackDepth, int maxArity, int tempCount, String[] variables) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStackDepth = maxStackDepth;
+        this.maxArity = maxArity;
+        this.tempCount = tempCount;
+        this.variables = variables;
+    }
+
+    /**
+     * Monta o programa a partir de uma lista de tokens pós-fixados.
+     *
+     * @param postfixTokens A lista de tokens na notação pós-fixada.
+     * @return O programa equivalente.
+     * @throws ExpressionException Se a expressão pós-fixada for inválida (mesmas mensagens do {@link PostfixEvaluator}).
+     */
+    public static Program assemble(List<Token> postfixTokens) throws ExpressionException {
+        return assemble(postfixTokens, null);
+    }
+
+    /**
+     * Monta o programa com as variáveis declaradas: a variável {@code declaredVariables[i]}
+     * ocupa o slot {@code i}, mesmo que a expressão não a utilize. Com {@code null}, os slots
+     * seguem a ordem em que as variáveis aparecem na expressão.
+     *
+     * @throws ExpressionException Se a expressão for inválida ou usar uma variável não declarada.
+     */
+    public static Program assemble(List<Token> postfixTokens, String[] declaredVariables) throws ExpressionException {
+        int[] code = new int[postfixTokens.size() * 2];
+        double[] constants = new double[postfixTokens.size()];
+        List<String> variables = new ArrayList<>();
+        if (declaredVariables != null) {
+            for (String variable : declaredVariables) {
+                variables.add(variable.toLowerCase());
+            }
+        }
+        int pc = 0;
+        int constantCount = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        int maxArity = 0;
+
+        for (Token token : postfixTokens) {
+            String value = token.getValue();
+            switch (token.getType()) {
+                case NUMBER:
+                    try {
+                        constants[constantCount] = Double.parseDouble(value);
+                    } catch (NumberFormatException e) {
+                        throw new ExpressionException("Número inválido: " + value, e);
+                    }
+                    code[pc++] = Opcode.PUSH_CONST;
+                    code[pc++] = constantCount++;
+                    depth++;
+                    break;
+                case CONSTANT:
+                    if (value.equalsIgnoreCase("pi")) {
+                        constants[constantCount] = Math.PI;
+                    } else if (value.equalsIgnoreCase("e")) {
+                        constants[constantCount] = Math.E;
+                    } else {
+                        throw new ExpressionException("Constante desconhecida: " + value);
+                    }
+                    code[pc++] = Opcode.PUSH_CONST;
+                    code[pc++] = constantCount++;
+                    depth++;
+                    break;
+                case VARIABLE:
+                    String name = value.toLowerCase();
+                    int slot = variables.indexOf(name);
+                    if (slot < 0 && declaredVariables != null) {
+                        throw new ExpressionException("Variável não declarada: " + value);
+                    }
+                    if (slot < 0) {
+                        slot = variables.size();
+                        variables.add(name);
+                    }
+                    code[pc++] = Opcode.LOAD_VAR;
+                    code[pc++] = slot;
+                    depth++;
+                    break;
+                case OPERATOR:
+                    if (value.equals("!")) {
+                        if (depth < 1) {
+                            throw new ExpressionException("Sintaxe inválida: operador '!' requer um operando.");
+                        }
+                        code[pc++] = Opcode.FACT;
+                        break;
+                    }
+                    if (depth < 2) {
+                        throw new ExpressionException("Sintaxe inválida: operador '" + value + "' requer dois operandos.");
+                    }
+                    int operator = Opcode.forOperator(value);
+                    if (operator < 0) {
+                        throw new ExpressionException("Operador desconhecido: " + value);
+                    }
+                    code[pc++] = operator;
+                    depth--;
+                    break;
+                case FUNCTION:
+                    int function = Opcode.forFunction(value);
+                    if (Opcode.isStatistic(function)) {
+                        int arity = token.getArguments();
+                        if (depth < arity) {
+                            throw new ExpressionException("Sintaxe inválida: função '" + value + "' requer " + arity + " operandos.");
+                        }
+                        code[pc++] = function;
+                        code[pc++] = arity;
+                        depth -= arity - 1;
+                        maxArity = Math.max(maxArity, arity);
+                        break;
+                    }
+                    if (depth < 1) {
+                        throw new ExpressionException("Sintaxe inválida: função '" + value + "' requer um operando.");
+                    }
+                    if (function < 0) {
+                        throw new ExpressionException("Função desconhecida: " + value);
+                    }
+                    code[pc++] = function;
+                    break;
+                default:
+                    throw new ExpressionException("Tipo de token inesperado na avaliação pós-fixada: " + token.getType());
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        if (depth != 1) {
+            throw new ExpressionException("Sintaxe inválida: expressão pós-fixada resultou em múltiplos valores ou nenhum.");
+        }
+
+        return new Program(Arrays.copyOf(code, pc), Arrays.copyOf(constants, constantCount), maxDepth, maxArity, 0,
+                           variables.toArray(new String[0]));
+    }
+
+    /**
+     * @return O tamanho de pilha necessário para avaliar o programa.
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * @return Os nomes das variáveis, na ordem de seus slots.
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @return O slot da variável, ou -1 se a expressão não a utiliza.
+     */
+    public int slotOf(String variable) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equalsIgnoreCase(variable)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static double[] noVariables() {
+        return NO_VARIABLES;
+    }
+
+    /**
+     * Listagem legível do programa, uma instrução por linha.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc += Opcode.length(code[pc])) {
+            int opcode = code[pc];
+            sb.append(pc).append(": ").append(Opcode.name(opcode));
+            if (opcode == Opcode.PUSH_CONST) {
+                sb.append(' ').append(constants[code[pc + 1]]);
+            } else if (opcode == Opcode.LOAD_VAR) {
+                sb.append(' ').append(variables[code[pc + 1]]);
+            } else if (opcode == Opcode.STORE_TEMP || opcode == Opcode.LOAD_TEMP) {
+                sb.append(" t").append(code[pc + 1]);
+            } else if (Opcode.isStatistic(opcode)) {
+                sb.append(' ').append(code[pc + 1]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
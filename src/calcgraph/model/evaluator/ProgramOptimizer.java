@@ -0,0 +1,386 @@
+package calcgraph.model.evaluator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Passo de otimização entre a montagem do {@link Program} e a avaliação.
+ *
+ * O código é decodificado em uma árvore e simplificado de baixo para cima:
+ * <ul>
+ *   <li>subárvores sem variáveis são calculadas uma única vez ({@code 2*pi}, {@code sqrt(16)},
+ *       estatísticas de constantes);</li>
+ *   <li>{@code e^2} e {@code e*e} viram {@link Opcode#SQUARE} e {@code e^1} vira {@code e};</li>
+ *   <li>identidades {@code e*1}, {@code 1*e}, {@code e/1} e {@code e-0} são removidas, assim
+ *       como {@code e+0} quando {@code e} não pode valer -0.0.</li>
+ * </ul>
+ *
+ * A árvore é na verdade um DAG: nós iguais (mesma operação sobre os mesmos filhos) são
+ * unificados na construção. Uma subexpressão usada mais de uma vez, como o {@code sin(x)} de
+ * {@code sin(x)^2 + sin(x)*cos(x) + sin(x)}, é calculada uma vez só e guardada em um
+ * temporário ({@link Opcode#STORE_TEMP}); as demais ocorrências apenas o leem
+ * ({@link Opcode#LOAD_TEMP}). A primeira ocorrência continua no mesmo ponto da ordem de
+ * avaliação, então erros acontecem no mesmo momento que no programa original.
+ *
+ * Toda regra mantém o resultado idêntico, bit a bit, ao do programa original:
+ * {@code Math.pow(x, 2)} é exatamente {@code x*x}, mas {@code x^3} não é reduzido porque
+ * {@code x*x*x} arredonda duas vezes. Subárvores constantes que geram erro (ex: {@code 1/0})
+ * não são calculadas, para que o erro continue acontecendo na avaliação.
+ */
+final class ProgramOptimizer {
+
+    private static final long ONE = Double.doubleToRawLongBits(1.0);
+    private static final long TWO = Double.doubleToRawLongBits(2.0);
+    private static final long POSITIVE_ZERO = Double.doubleToRawLongBits(0.0);
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    private ProgramOptimizer() {
+    }
+
+    /**
+     * @param program Um programa recém-montado por {@link Program#assemble}.
+     * @return Um programa equivalente e simplificado, com os mesmos slots de variáveis.
+     */
+    static Program optimize(Program program) {
+        return optimize(program, true);
+    }
+
+    /**
+     * @param shareSubexpressions Se falso, subexpressões repetidas são recalculadas (usado para comparação).
+     */
+    static Program optimize(Program program, boolean shareSubexpressions) {
+        Map<Node, Node> interned = new HashMap<>();
+        int[] code = program.code;
+        Node[] stack = new Node[Math.max(1, program.maxStackDepth)];
+        int sp = 0;
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case Opcode.PUSH_CONST:
+                    stack[sp++] = intern(interned, Node.constant(program.constants[code[pc++]]));
+                    break;
+                case Opcode.LOAD_VAR:
+                    stack[sp++] = intern(interned, new Node(Opcode.LOAD_VAR, code[pc++], 0.0));
+                    break;
+                case Opcode.ADD:
+                case Opcode.SUB:
+                case Opcode.MUL:
+                case Opcode.DIV:
+                case Opcode.POW:
+                    sp--;
+                    stack[sp - 1] = intern(interned, simplify(new Node(opcode, stack[sp - 1], stack[sp])));
+                    break;
+                default:
+                    if (Opcode.isStatistic(opcode)) {
+                        int arity = code[pc++];
+                        sp -= arity;
+                        stack[sp] = intern(interned, simplify(new Node(opcode, Arrays.copyOfRange(stack, sp, sp + arity))));
+                        sp++;
+                    } else {
+                        stack[sp - 1] = intern(interned, simplify(new Node(opcode, stack[sp - 1])));
+                    }
+                    break;
+            }
+        }
+
+        if (shareSubexpressions) {
+            countUses(stack[0]);
+        }
+        return emit(stack[0], program);
+    }
+
+    private static Node intern(Map<Node, Node> interned, Node node) {
+        Node existing = interned.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+
+    /**
+     * Conta quantas vezes cada nó é referenciado a partir da raiz.
+     */
+    private static void countUses(Node root) {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            for (Node child : pending.pop().children) {
+                if (child.uses++ == 0) {
+                    pending.push(child);
+                }
+            }
+        }
+    }
+
+    private static Node simplify(Node node) {
+        Node folded = fold(node);
+        if (folded != null) {
+            return folded;
+        }
+        Node[] children = node.children;
+        switch (node.opcode) {
+            case Opcode.MUL:
+                if (children[1].isConstant(ONE)) {
+                    return children[0];
+                }
+                if (children[0].isConstant(ONE)) {
+                    return children[1];
+                }
+                if (children[0] == children[1]) {
+                    return new Node(Opcode.SQUARE, children[0]);
+                }
+                break;
+            case Opcode.DIV:
+                if (children[1].isConstant(ONE)) {
+                    return children[0];
+                }
+                break;
+            case Opcode.ADD:
+                // e + 0.0 troca -0.0 por +0.0; e + (-0.0) é sempre e
+                if (children[1].isConstant(NEGATIVE_ZERO)
+                        || children[1].isConstant(POSITIVE_ZERO) && !children[0].mayBeNegativeZero) {
+                    return children[0];
+                }
+                if (children[0].isConstant(NEGATIVE_ZERO)
+                        || children[0].isConstant(POSITIVE_ZERO) && !children[1].mayBeNegativeZero) {
+                    return children[1];
+                }
+                break;
+            case Opcode.SUB:
+                if (children[1].isConstant(POSITIVE_ZERO)
+                        || children[1].isConstant(NEGATIVE_ZERO) && !children[0].mayBeNegativeZero) {
+                    return children[0];
+                }
+                break;
+            case Opcode.POW:
+                if (children[1].isConstant(ONE)) {
+                    return children[0];
+                }
+                if (children[1].isConstant(TWO)) {
+                    return new Node(Opcode.SQUARE, children[0]);
+                }
+                break;
+            default:
+                break;
+        }
+        return node;
+    }
+
+    /**
+     * Calcula a operação se todos os operandos forem constantes.
+     *
+     * @return A constante resultante, ou {@code null} se algum operando depende de variável
+     *         ou se o cálculo gera erro.
+     */
+    private static Node fold(Node node) {
+        double[] values = new double[node.children.length];
+        for (int i = 0; i < values.length; i++) {
+            if (node.children[i].opcode != Opcode.PUSH_CONST) {
+                return null;
+            }
+            values[i] = node.children[i].value;
+        }
+        try {
+            switch (node.opcode) {
+                case Opcode.ADD:
+                case Opcode.SUB:
+                case Opcode.MUL:
+                case Opcode.DIV:
+                case Opcode.POW:
+                    return Node.constant(PostfixEvaluator.applyBinary(node.opcode, values[0], values[1]));
+                case Opcode.FACT:
+                    return Node.constant(PostfixEvaluator.factorial(values[0]));
+                default:
+                    if (Opcode.isStatistic(node.opcode)) {
+                        return Node.constant(PostfixEvaluator.applyStatistic(node.opcode, values));
+                    }
+                    return Node.constant(PostfixEvaluator.applyFunction(node.opcode, values[0]));
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gera o código da árvore em pós-ordem, sem recursão (expressões longas geram árvores profundas).
+     */
+    private static Program emit(Node root, Program original) {
+        int[] code = new int[original.code.length + 1];
+        double[] constants = new double[Math.max(1, original.constants.length)];
+        int pc = 0;
+        int constantCount = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        int maxArity = 0;
+        int tempCount = 0;
+
+        Deque<Node> pending = new ArrayDeque<>();
+        Deque<Integer> visited = new ArrayDeque<>();
+        pending.push(root);
+        visited.push(0);
+        while (!pending.isEmpty()) {
+            Node node = pending.peek();
+            int next = visited.pop();
+            if (node.temp >= 0) {
+                // Subexpressão comum já calculada: só lê o temporário
+                pending.pop();
+                if (pc + 2 > code.length) {
+                    code = Arrays.copyOf(code, code.length * 2);
+                }
+                code[pc++] = Opcode.LOAD_TEMP;
+                code[pc++] = node.temp;
+                maxDepth = Math.max(maxDepth, ++depth);
+                continue;
+            }
+            if (next < node.children.length) {
+                visited.push(next + 1);
+                pending.push(node.children[next]);
+                visited.push(0);
+                continue;
+            }
+            pending.pop();
+
+            if (pc + 4 > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            switch (node.opcode) {
+                case Opcode.PUSH_CONST:
+                    int index = indexOf(constants, constantCount, node.value);
+                    if (index < 0) {
+                        if (constantCount == constants.length) {
+                            constants = Arrays.copyOf(constants, constants.length * 2);
+                        }
+                        index = constantCount;
+                        constants[constantCount++] = node.value;
+                    }
+                    code[pc++] = Opcode.PUSH_CONST;
+                    code[pc++] = index;
+                    depth++;
+                    break;
+                case Opcode.LOAD_VAR:
+                    code[pc++] = Opcode.LOAD_VAR;
+                    code[pc++] = node.slot;
+                    depth++;
+                    break;
+                default:
+                    code[pc++] = node.opcode;
+                    if (Opcode.isStatistic(node.opcode)) {
+                        code[pc++] = node.children.length;
+                        maxArity = Math.max(maxArity, node.children.length);
+                    }
+                    depth -= node.children.length - 1;
+                    if (node.uses > 1) {
+                        node.temp = tempCount++;
+                        code[pc++] = Opcode.STORE_TEMP;
+                        code[pc++] = node.temp;
+                    }
+                    break;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        return new Program(Arrays.copyOf(code, pc), Arrays.copyOf(constants, constantCount), maxDepth, maxArity, tempCount,
+                           original.getVariables().toArray(new String[0]));
+    }
+
+    private static int indexOf(double[] constants, int count, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < count; i++) {
+            if (Double.doubleToRawLongBits(constants[i]) == bits) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Nó do DAG da expressão. Igualdade é estrutural sobre filhos já unificados,
+     * então basta comparar os filhos por referência.
+     */
+    private static final class Node {
+        private static final Node[] LEAF = new Node[0];
+
+        final int opcode;
+        final int slot;
+        final double value;
+        final Node[] children;
+        // Falso só quando é certo que o valor nunca será -0.0
+        final boolean mayBeNegativeZero;
+        // Preenchidos na emissão
+        int uses;
+        int temp = -1;
+
+        Node(int opcode, int slot, double value) {
+            this.opcode = opcode;
+            this.slot = slot;
+            this.value = value;
+            this.children = LEAF;
+            this.mayBeNegativeZero = opcode != Opcode.PUSH_CONST || Double.doubleToRawLongBits(value) == NEGATIVE_ZERO;
+        }
+
+        Node(int opcode, Node... children) {
+            this.opcode = opcode;
+            this.slot = -1;
+            this.value = 0.0;
+            this.children = children;
+            this.mayBeNegativeZero = computeMayBeNegativeZero(opcode, children);
+        }
+
+        static Node constant(double value) {
+            return new Node(Opcode.PUSH_CONST, -1, value);
+        }
+
+        boolean isConstant(long bits) {
+            return opcode == Opcode.PUSH_CONST && Double.doubleToRawLongBits(value) == bits;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) other;
+            if (opcode != node.opcode || slot != node.slot
+                    || Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(node.value)
+                    || children.length != node.children.length) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != node.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * opcode + slot;
+            hash = 31 * hash + Long.hashCode(Double.doubleToRawLongBits(value));
+            for (Node child : children) {
+                hash = 31 * hash + System.identityHashCode(child);
+            }
+            return hash;
+        }
+
+        private static boolean computeMayBeNegativeZero(int opcode, Node[] children) {
+            switch (opcode) {
+                // -0.0 só sai de uma soma de dois -0.0 e de uma subtração com -0.0 à esquerda
+                case Opcode.ADD: return children[0].mayBeNegativeZero && children[1].mayBeNegativeZero;
+                case Opcode.SUB: return children[0].mayBeNegativeZero;
+                case Opcode.SQUARE:
+                case Opcode.ABS:
+                case Opcode.COS:
+                case Opcode.LOG:
+                case Opcode.LN:
+                case Opcode.FACT:
+                case Opcode.FAT:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package calcgraph.model.evaluator;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Política de execução em camadas das expressões compiladas.
+ *
+ * Toda expressão começa no interpretador do {@link PostfixEvaluator} e conta as
+ * suas invocações e pontos avaliados. Quando os pontos atingem o limiar, a expressão
+ * é promovida em segundo plano: o {@link BytecodeCompiler} gera a classe em outra
+ * thread e a função pronta é publicada de uma vez, sem bloquear quem está avaliando.
+ * Assim um cálculo avulso como "2+2" nunca paga a geração de bytecode, enquanto uma
+ * função arrastada no gráfico passa logo para o código mais rápido.
+ *
+ * O limiar padrão pode ser trocado com {@code -Dcalcgraph.tier.threshold=<pontos>};
+ * um valor negativo mantém tudo no interpretador.
+ */
+public final class TieredPolicy {
+
+    public static final long DEFAULT_THRESHOLD = 2_000;
+
+    private static final TieredPolicy SHARED = new TieredPolicy(
+            Long.getLong("calcgraph.tier.threshold", DEFAULT_THRESHOLD), backgroundCompiler());
+
+    private final long threshold;
+    private final Executor executor;
+
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * @param threshold Pontos avaliados até a promoção ({@code 0} promove na primeira avaliação,
+     *                  negativo desliga a promoção).
+     * @param executor  Onde a geração de bytecode é executada.
+     */
+    public TieredPolicy(long threshold, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("O executor da política não pode ser nulo.");
+        }
+        this.threshold = threshold;
+        this.executor = executor;
+    }
+
+    public static TieredPolicy shared() {
+        return SHARED;
+    }
+
+    private static ExecutorService backgroundCompiler() {
+        return Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "calcgraph-compiler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * @return {@code true} se uma expressão com esse total de pontos deve ser promovida.
+     */
+    boolean isHot(long points) {
+        return threshold >= 0 && points >= threshold;
+    }
+
+    /**
+     * Agenda a geração de bytecode da expressão. Chamado uma única vez por expressão.
+     */
+    void promote(CompiledExpression expression) {
+        promotions.incrementAndGet();
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            DoubleUnaryOperator function = null;
+            try {
+                function = BytecodeCompiler.compile(expression.getProgram());
+            } finally {
+                compileNanos.addAndGet(System.nanoTime() - start);
+                if (function != null) {
+                    compilations.incrementAndGet();
+                } else {
+                    failures.incrementAndGet();
+                }
+                expression.install(function);
+            }
+        });
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return Expressões que atingiram o limiar e foram enviadas para compilação.
+     */
+    public long getPromotions() {
+        return promotions.get();
+    }
+
+    /**
+     * @return Expressões que passaram a executar como bytecode.
+     */
+    public long getCompilations() {
+        return compilations.get();
+    }
+
+    /**
+     * @return Expressões que não puderam ser compiladas e ficaram no interpretador.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getCompileNanos() {
+        return compileNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredPolicy{" +
+               "threshold=" + threshold +
+               ", promotions=" + promotions.get() +
+               ", compilations=" + compilations.get() +
+               ", failures=" + failures.get() +
+               ", compileMillis=" + compileNanos.get() / 1_000_000 +
+               '}';
+    }
+}
@@ -4,9 +4,8 @@ import calcgraph.model.exception.ExpressionException;
 import calcgraph.model.token.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Responsável por tokenizar a string da expressão matemática em uma lista de Tokens.
@@ -14,110 +13,165 @@ import java.util.regex.Pattern;
  */
 public class ExpressionParser {
 
-    private static final String NUMBER_REGEX = "\\d+(\\.\\d+)?";
-    private static final String OPERATOR_REGEX = "[+\\-*/^!]";
-    private static final String PARENTHESIS_REGEX = "[()]";
-    private static final String FUNCTION_CONSTANT_REGEX = "[a-zA-Z]+";
-    private static final String SEPARATOR_REGEX = ",";
-    private static final String VARIABLE_REGEX = "[xX]";
+    // Nomes declarados, em minúsculas; null reconhece apenas x, como variável única
+    private final String[] variables;
 
+    /**
+     * Reconhece apenas {@code x} (ou {@code X}) como variável.
+     */
+    public ExpressionParser() {
+        this.variables = null;
+    }
 
-    private static final Pattern TOKEN_PATTERN = Pattern.compile(
-            NUMBER_REGEX + "|" +
-            OPERATOR_REGEX + "|" +
-            PARENTHESIS_REGEX + "|" +
-            FUNCTION_CONSTANT_REGEX + "|" +
-            SEPARATOR_REGEX + "|" +
-            VARIABLE_REGEX 
-    );
+    /**
+     * Reconhece como variáveis os nomes declarados, sem distinguir maiúsculas de minúsculas
+     * (ex: {@code new ExpressionParser("x", "y", "t")}). Cada nome é uma sequência de letras,
+     * diferente das constantes {@code e} e {@code pi}. Um nome declarado tem precedência sobre
+     * a função de mesmo nome (ex: {@code t}); uma palavra que não é variável nem constante
+     * continua sendo tratada como função.
+     *
+     * @throws IllegalArgumentException Se algum nome for inválido ou repetido.
+     */
+    public ExpressionParser(String... variables) {
+        String[] names = new String[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            String name = variables[i];
+            if (name == null || name.isEmpty() || !isWord(name)) {
+                throw new IllegalArgumentException("Nome de variável inválido: '" + name + "'");
+            }
+            name = name.toLowerCase();
+            if (name.equals("e") || name.equals("pi")) {
+                throw new IllegalArgumentException("O nome '" + name + "' é reservado para uma constante.");
+            }
+            for (int j = 0; j < i; j++) {
+                if (names[j].equals(name)) {
+                    throw new IllegalArgumentException("Variável declarada mais de uma vez: '" + name + "'");
+                }
+            }
+            names[i] = name;
+        }
+        this.variables = names;
+    }
 
-    
+    /**
+     * Tokeniza a expressão em uma única passagem.
+     * Sinais unários são reescritos como {@code ( 0 - operando )} à medida que são
+     * encontrados: o parêntese de fechamento é emitido assim que o operando seguinte
+     * (número, variável, constante, grupo entre parênteses ou chamada de função) termina.
+     */
     public List<Token> tokenize(String expression) {
-        List<Token> tokens = new ArrayList<>();
-        String expr = expression.replaceAll("\\s+", "");
-        
-        Matcher matcher = TOKEN_PATTERN.matcher(expr);
-        int lastMatchEnd = 0;
-
-        while (matcher.find()) {
-            if (matcher.start() > lastMatchEnd) {
-                String invalidPart = expr.substring(lastMatchEnd, matcher.start());
-                throw new ExpressionException("Caracteres não reconhecidos na expressão: '" + invalidPart + "'");
-            }
-
-            String tokenValue = matcher.group();
-            TokenType tokenType = TokenType.NUMBER; 
-            if (tokenValue.matches(NUMBER_REGEX)) {
-                tokenType = TokenType.NUMBER;
-            } else if (tokenValue.matches(OPERATOR_REGEX)) {
-               
-                boolean isUnary = (tokens.isEmpty() ||
-                                   (tokens.get(tokens.size() - 1).getType() == TokenType.OPERATOR && !tokens.get(tokens.size() - 1).getValue().equals(")")) || // Ex: 2 * -5
-                                   (tokens.get(tokens.size() - 1).getType() == TokenType.PARENTHESIS && tokens.get(tokens.size() - 1).getValue().equals("(")) ); // Ex: (-5)
-
-                if ((tokenValue.equals("-") || tokenValue.equals("+")) && isUnary) {
-                    tokenType = TokenType.OPERATOR; 
-                } else {
-                    tokenType = TokenType.OPERATOR;
-                }
-            } else if (tokenValue.matches(PARENTHESIS_REGEX)) {
-                tokenType = TokenType.PARENTHESIS;
-            }else if (tokenValue.matches(VARIABLE_REGEX)) {
-                tokenType = TokenType.VARIABLE;
-            }else if (tokenValue.equals(",")) { 
-                tokenType = TokenType.SEPARATOR;
-            } else if (tokenValue.matches(FUNCTION_CONSTANT_REGEX)) {
-                if (isConstant(tokenValue)) {
-                    tokenType = TokenType.CONSTANT;
-                    tokenValue = tokenValue.toLowerCase();
-                } else {
-                    tokenType = TokenType.FUNCTION;
-                    tokenValue = tokenValue.toLowerCase();
-                }
-            }
-
-            tokens.add(new Token(tokenType, tokenValue) {}); 
-
-            lastMatchEnd = matcher.end();
-        }
+        char[] expr = stripWhitespace(expression);
+        int length = expr.length;
+        List<Token> tokens = new ArrayList<>(length);
 
-        if (lastMatchEnd < expr.length()) {
-            String invalidPart = expr.substring(lastMatchEnd);
-            throw new ExpressionException("Caracteres não reconhecidos no final da expressão: '" + invalidPart + "'");
-        }
-        
-        List<Token> processedTokens = new ArrayList<>();
-        for (int i = 0; i < tokens.size(); i++) {
-            Token currentToken = tokens.get(i);
-            if (currentToken.getType() == TokenType.OPERATOR &&
-                (currentToken.getValue().equals("-") || currentToken.getValue().equals("+"))) {
-
-                boolean isUnary = false;
-                if (i == 0) {
-                    isUnary = true;
-                } else {
-                    Token prevToken = tokens.get(i - 1);
-                    if (prevToken.getType() == TokenType.OPERATOR ||
-                        (prevToken.getType() == TokenType.PARENTHESIS && prevToken.getValue().equals("(")) ||
-                        prevToken.getType() == TokenType.FUNCTION) { // Ex: sin(-2)
-                        isUnary = true;
+        // Níveis de parênteses dos sinais unários que aguardam o fim do operando
+        int[] pendingUnary = new int[8];
+        int pendingCount = 0;
+        int depth = 0;
+        Token previous = null;
+
+        int pos = 0;
+        while (pos < length) {
+            char c = expr[pos];
+            int start = pos;
+            Token token;
+
+            if (isDigit(c)) {
+                // \d+(\.\d+)? : a parte decimal só é consumida se houver dígito após o ponto
+                pos++;
+                while (pos < length && isDigit(expr[pos])) {
+                    pos++;
+                }
+                if (pos + 1 < length && expr[pos] == '.' && isDigit(expr[pos + 1])) {
+                    pos += 2;
+                    while (pos < length && isDigit(expr[pos])) {
+                        pos++;
                     }
                 }
+                token = new NumberToken(new String(expr, start, pos - start));
+            } else if (isLetter(c)) {
+                pos++;
+                while (pos < length && isLetter(expr[pos])) {
+                    pos++;
+                }
+                token = wordToken(expr, start, pos - start);
+            } else {
+                String symbol = symbolValue(c);
+                if (symbol == null) {
+                    // Agrupa todos os caracteres inválidos consecutivos, como fazia o Matcher
+                    while (pos < length && symbolValue(expr[pos]) == null && !isDigit(expr[pos]) && !isLetter(expr[pos])) {
+                        pos++;
+                    }
+                    String invalidPart = new String(expr, start, pos - start);
+                    if (pos < length) {
+                        throw new ExpressionException("Caracteres não reconhecidos na expressão: '" + invalidPart + "'");
+                    }
+                    throw new ExpressionException("Caracteres não reconhecidos no final da expressão: '" + invalidPart + "'");
+                }
+                pos++;
+                token = new Token(symbolType(c), symbol) {};
+            }
 
-                if (isUnary) {
-
-                    tokens.add(i, new ParenthesisToken("("));
-                    tokens.add(i+1, new NumberToken("0"));
-                    tokens.add(i+4, new ParenthesisToken(")"));
-                    i=-1;
-                    processedTokens.clear();
-                    continue;
+            TokenType type = token.getType();
+            if (type == TokenType.OPERATOR && (c == '-' || c == '+') && isUnaryPosition(previous)) {
+                tokens.add(new ParenthesisToken("("));
+                tokens.add(new NumberToken("0"));
+                tokens.add(token);
+                if (pendingCount == pendingUnary.length) {
+                    pendingUnary = Arrays.copyOf(pendingUnary, pendingCount * 2);
+                }
+                pendingUnary[pendingCount++] = depth;
+            } else if (type == TokenType.PARENTHESIS && c == '(') {
+                tokens.add(token);
+                depth++;
+            } else if (type == TokenType.PARENTHESIS) {
+                // Sinais abertos dentro deste grupo ficaram sem operando: fecha-os antes
+                while (pendingCount > 0 && pendingUnary[pendingCount - 1] >= depth) {
+                    tokens.add(new ParenthesisToken(")"));
+                    pendingCount--;
+                }
+                tokens.add(token);
+                depth--;
+                while (pendingCount > 0 && pendingUnary[pendingCount - 1] == depth) {
+                    tokens.add(new ParenthesisToken(")"));
+                    pendingCount--;
+                }
+            } else if (type == TokenType.SEPARATOR) {
+                while (pendingCount > 0 && pendingUnary[pendingCount - 1] >= depth) {
+                    tokens.add(new ParenthesisToken(")"));
+                    pendingCount--;
                 }
+                tokens.add(token);
+            } else if (type == TokenType.NUMBER || type == TokenType.VARIABLE || type == TokenType.CONSTANT) {
+                tokens.add(token);
+                while (pendingCount > 0 && pendingUnary[pendingCount - 1] == depth) {
+                    tokens.add(new ParenthesisToken(")"));
+                    pendingCount--;
+                }
+            } else {
+                tokens.add(token);
             }
-            processedTokens.add(currentToken);
+            previous = token;
+        }
+
+        // Sinais unários no final da expressão (ex: "5*-"): a validação acusa o erro
+        while (pendingCount > 0) {
+            tokens.add(new ParenthesisToken(")"));
+            pendingCount--;
         }
 
-        return processedTokens;
+        return tokens;
+    }
+
+    /**
+     * Um '+' ou '-' é unário no início da expressão ou após operador,
+     * abre parênteses ou função (ex: 2 * -5, (-5), sin(-2)).
+     */
+    private static boolean isUnaryPosition(Token previous) {
+        return previous == null ||
+               previous.getType() == TokenType.OPERATOR ||
+               (previous.getType() == TokenType.PARENTHESIS && previous.getValue().equals("(")) ||
+               previous.getType() == TokenType.FUNCTION;
     }
 
     public void validateTokenSequence(List<Token> tokens) {
@@ -234,7 +288,115 @@ public class ExpressionParser {
         }
     }
 
-    private boolean isConstant(String value) {
-        return value.equalsIgnoreCase("pi") || value.equalsIgnoreCase("e");
+    /**
+     * Retorna a expressão sem espaços em branco, a mesma forma que o tokenizador enxerga.
+     * Usada como chave de cache para expressões compiladas.
+     */
+    public static String normalize(String expression) {
+        char[] stripped = stripWhitespace(expression);
+        return stripped.length == expression.length() ? expression : new String(stripped);
+    }
+
+    /**
+     * Remove os espaços em branco (equivalente a {@code replaceAll("\\s+", "")})
+     * copiando os demais caracteres para um único buffer.
+     */
+    private static char[] stripWhitespace(String expression) {
+        char[] buffer = new char[expression.length()];
+        int length = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (!isWhitespace(c)) {
+                buffer[length++] = c;
+            }
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Classifica uma sequência de letras como variável, constante ou função.
+     */
+    private Token wordToken(char[] expr, int start, int length) {
+        if (variables == null) {
+            if (length == 1 && (expr[start] == 'x' || expr[start] == 'X')) {
+                return new Token(TokenType.VARIABLE, expr[start] == 'x' ? "x" : "X") {};
+            }
+        } else {
+            String variable = declaredVariable(expr, start, length);
+            if (variable != null) {
+                return new Token(TokenType.VARIABLE, variable) {};
+            }
+        }
+        if (length == 1 && (expr[start] | 0x20) == 'e') {
+            return new Token(TokenType.CONSTANT, "e") {};
+        }
+        if (length == 2 && (expr[start] | 0x20) == 'p' && (expr[start + 1] | 0x20) == 'i') {
+            return new Token(TokenType.CONSTANT, "pi") {};
+        }
+        return new FunctionToken(new String(expr, start, length).toLowerCase());
+    }
+
+    private String declaredVariable(char[] expr, int start, int length) {
+        for (String variable : variables) {
+            if (variable.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && (expr[start + i] | 0x20) == variable.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWord(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!isLetter(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String symbolValue(char c) {
+        switch (c) {
+            case '+': return "+";
+            case '-': return "-";
+            case '*': return "*";
+            case '/': return "/";
+            case '^': return "^";
+            case '!': return "!";
+            case '(': return "(";
+            case ')': return ")";
+            case ',': return ",";
+            default: return null;
+        }
+    }
+
+    private static TokenType symbolType(char c) {
+        switch (c) {
+            case '(':
+            case ')':
+                return TokenType.PARENTHESIS;
+            case ',':
+                return TokenType.SEPARATOR;
+            default:
+                return TokenType.OPERATOR;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 }
\ No newline at end of file
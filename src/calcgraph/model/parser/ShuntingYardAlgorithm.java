@@ -82,9 +82,9 @@ public class ShuntingYardAlgorithm {
                         operatorStack.pop(); // Pop the left parenthesis
                         // Se o topo da pilha é uma função, joga para a fila de saída (funções são prefixas)
                         if (!operatorStack.isEmpty() && operatorStack.peek().getType() == TokenType.FUNCTION) {
+                            // Tokens são imutáveis: a chamada com a contagem de argumentos é um token novo
                             Token tk = operatorStack.pop();
-                            tk.setArguments(counterStack.pop());
-                            outputQueue.add(tk);
+                            outputQueue.add(new FunctionToken(tk.getValue(), counterStack.pop()));
                         }
                     }
                     break;
@@ -102,5 +102,4 @@ public class ShuntingYardAlgorithm {
         }
 
         return outputQueue;
-    }
-}
\ No newline at end of file
+    }}
@@ -7,4 +7,11 @@ public class FunctionToken extends Token {
     public FunctionToken(String value) {
         super(TokenType.FUNCTION, value);
     }
+
+    /**
+     * @param arguments Quantidade de argumentos da chamada (definida pelo Shunting Yard).
+     */
+    public FunctionToken(String value, int arguments) {
+        super(TokenType.FUNCTION, value, arguments);
+    }
 }
\ No newline at end of file
@@ -3,11 +3,14 @@ package calcgraph.model.token;
 /**
  * Classe base abstrata para todos os tokens.
  * Define o tipo de token e seu valor.
+ *
+ * Tokens são imutáveis, então listas de tokens (como as de uma
+ * {@code CompiledExpression}) podem ser compartilhadas entre threads.
  */
 public abstract class Token {
     private final TokenType type;
-    private String value;
-    private int arguments;
+    private final String value;
+    private final int arguments;
 
     public Token(TokenType type, String value) {
         this.type = type;
@@ -25,10 +28,6 @@ public abstract class Token {
         return type;
     }
     
-     public void setValue(String value) {
-        this.value = value;
-    }
-
     public String getValue() {
         return value;
     }
@@ -36,10 +35,6 @@ public abstract class Token {
     public int getArguments() {
         return arguments;
     }
-    
-    public void setArguments(int arguments){
-        this.arguments = arguments;
-    }
 
     @Override
     public String toString() {
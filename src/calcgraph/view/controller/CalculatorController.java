@@ -11,6 +11,7 @@ import calcgraph.model.exception.ExpressionException;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Pane;
@@ -19,8 +20,10 @@ import javafx.scene.layout.VBox;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import javafx.scene.control.MenuItem;
 
 import javafx.scene.control.TableView;
@@ -31,11 +34,14 @@ import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.ListView;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TableRow;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
 import javafx.stage.Modality;
 
 
@@ -101,6 +107,7 @@ public class CalculatorController {
         showModePane(calculationModePane);
         updateModeButtonStyles(btnModeCalculation);
         graphPlotter = new GraphPlotter(mainGraphPane, mainGraphLegend);
+        comparisonPlotter = new GraphPlotter(comparisonGraphPane, comparisonGraphLegend);
         service = new CalcService();
         lastExpressaoId = null;
     }
@@ -519,14 +526,86 @@ public class CalculatorController {
         functionInputsBox.getChildren().add(functionInputsBox.getChildren().size() - 1, fieldBox);
     }
 
+    // Abre um diálogo com as funções salvas (favoritos e histórico) e acrescenta a escolhida ao comparisonGraphPane
     @FXML
     private void handleSelectComparisonGraph() {
-        // TODO: abrir diálogo para selecionar função salva e gerar gráfico no comparisonGraphPane
+        List<String> funcoes = new ArrayList<>();
+        try {
+            for (Favorito fav : service.favoritos()) {
+                addSavedFunction(funcoes, fav.getExpressao().getEntrada());
+            }
+            for (Expressao exp : service.historico(500)) {
+                addSavedFunction(funcoes, exp.getEntrada());
+            }
+        } catch (Exception dbEx) {
+            errorMessageLabelGrafico.setText("Falha ao carregar as funções salvas.");
+            System.err.println("Falha ao carregar funções salvas: " + dbEx.getMessage());
+            return;
+        }
+        if (funcoes.isEmpty()) {
+            errorMessageLabelGrafico.setText("Nenhuma função salva para comparar.");
+            return;
+        }
+
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(funcoes.get(0), funcoes);
+        dialog.initOwner(btnSelectComparisonGraph.getScene().getWindow());
+        dialog.setTitle("Gráfico de Comparação");
+        dialog.setHeaderText("Selecione uma função salva");
+        dialog.setContentText("Função:");
+        dialog.showAndWait().ifPresent(funcao -> plotFunctionOnPane(comparisonGraphPane, funcao));
     }
 
-    // Método para plotar gráficos (exemplo simples, pode ser com Canvas ou JFreeChart)
+    // Só entradas que geram gráfico, sem repetir
+    private void addSavedFunction(List<String> funcoes, String entrada) {
+        String funcao = graphFunctionOf(entrada);
+        if (funcao != null && !funcoes.contains(funcao)) {
+            funcoes.add(funcao);
+        }
+    }
+
+    // Plota a função no painel com o mesmo motor do gráfico principal; no de comparação, as funções se sobrepõem
     private void plotFunctionOnPane(Pane pane, String function) {
-        // TODO: implementar renderização
+        if (pane == comparisonGraphPane) {
+            comparisonPlotter.addGraph(function);
+        } else {
+            graphPlotter.plotGraph(function);
+        }
+    }
+
+    // Funções digitadas nos campos do modo gráfico, na ordem dos campos
+    private List<String> graphFunctionsFromFields() {
+        List<String> funcoes = new ArrayList<>();
+        for (Node node : functionInputsBox.getChildren()) {
+            if (!(node instanceof HBox)) {
+                continue;
+            }
+            for (Node child : ((HBox) node).getChildren()) {
+                if (child instanceof TextField) {
+                    String funcao = graphFunctionOf(((TextField) child).getText());
+                    if (funcao != null) {
+                        funcoes.add(funcao);
+                    }
+                }
+            }
+        }
+        return funcoes;
+    }
+
+    // A função de uma entrada que gera gráfico, ou null (vazia, numérica ou com erro)
+    private static String graphFunctionOf(String entrada) {
+        if (entrada == null || entrada.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            ResultadoAvaliacao resultado = AnalisadorDeExpressoes.avaliarExpressao(entrada);
+            if (resultado.getTipo() != ResultadoAvaliacao.TipoResultado.GRAFICO) {
+                return null;
+            }
+            GraphPlotter.detectParameters(resultado.getFuncao());
+            return resultado.getFuncao();
+        } catch (ExpressionException e) {
+            return null; // O erro aparece quando o próprio campo for calculado
+        }
     }
     
     @FXML
@@ -774,6 +853,29 @@ public class CalculatorController {
     }
     
     private GraphPlotter graphPlotter;
+    private GraphPlotter comparisonPlotter;
+
+    @FXML
+    private VBox mainGraphParameters; // Sliders dos parâmetros da função plotada
+
+    // Um slider por parâmetro; arrastar só reavalia a curva, sem recompilar a expressão
+    private void showParameterSliders() {
+        mainGraphParameters.getChildren().clear();
+        for (Map.Entry<String, Double> parameter : graphPlotter.getParameters().entrySet()) {
+            String name = parameter.getKey();
+            Label label = new Label(name + " = " + decimalFormat.format(parameter.getValue()));
+            label.setMinWidth(60);
+            Slider slider = new Slider(-10, 10, parameter.getValue());
+            HBox.setHgrow(slider, Priority.ALWAYS);
+            slider.valueProperty().addListener((observable, oldValue, newValue) -> {
+                label.setText(name + " = " + decimalFormat.format(newValue.doubleValue()));
+                graphPlotter.setParameter(name, newValue.doubleValue());
+            });
+            HBox row = new HBox(5, label, slider);
+            row.setAlignment(Pos.CENTER_LEFT);
+            mainGraphParameters.getChildren().add(row);
+        }
+    }
 
     @FXML
     private void handleGraphEquals(ActionEvent event) {
@@ -797,9 +899,15 @@ public class CalculatorController {
                         System.err.println("Falha ao salvar histórico: " + dbEx.getMessage());
                     }
                }else if (resultado.getTipo() == ResultadoAvaliacao.TipoResultado.GRAFICO) {
-                // Se for um resultado de gráfico, plota a função
+                // Se for um resultado de gráfico, plota a função junto com as dos outros campos
                     String funcaoString = resultado.getFuncao(); 
-                    graphPlotter.plotGraph(funcaoString); 
+                    GraphPlotter.detectParameters(funcaoString); // Nome desconhecido vira erro, não slider
+                    List<String> funcoes = graphFunctionsFromFields();
+                    if (!funcoes.contains(funcaoString)) {
+                        funcoes.add(0, funcaoString);
+                    }
+                    graphPlotter.plotGraphs(funcoes); 
+                    showParameterSliders();
                     try {
                         calcgraph.model.Expressao e = service.registrarExpressao(expression, "Gráfico gerado", 0);
                         lastExpressaoId = e.getId();
@@ -0,0 +1,159 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classe de testes para AdaptiveSampler.
+ * A janela simula o painel do gráfico: 800 x 600 pixels com x e y em [-10, 10].
+ */
+public class AdaptiveSamplerTestes {
+
+    private static final double WIDTH = 800;
+    private static final double X_SCALE = WIDTH / 20;
+    private static final double Y_SCALE = 600.0 / 20;
+
+    private static AdaptiveSampler.Result sample(String function, double xMin, double xMax) {
+        return new AdaptiveSampler().sample(new FunctionEvaluator(CompiledExpression.compile(function)),
+                                            xMin, xMax, X_SCALE, Y_SCALE);
+    }
+
+    // Maior distância vertical, em pixels, entre a poligonal amostrada e a função, em uma grade densa
+    private static double maxPixelError(String function, AdaptiveSampler.Result result) {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile(function));
+        double worst = 0;
+        int segment = 0;
+        for (int k = 0; k <= 16 * WIDTH; k++) {
+            double x = FunctionEvaluator.sampleX(result.x(0), result.x(result.size() - 1), (int) (16 * WIDTH) + 1, k);
+            while (segment < result.size() - 2 && result.x(segment + 1) < x) {
+                segment++;
+            }
+            double t = (x - result.x(segment)) / (result.x(segment + 1) - result.x(segment));
+            double line = result.y(segment) + t * (result.y(segment + 1) - result.y(segment));
+            worst = Math.max(worst, Math.abs(line - evaluator.evaluate(x)) * Y_SCALE);
+        }
+        return worst;
+    }
+
+    @Test
+    public void testStraightLineKeepsCoarseGrid() {
+        AdaptiveSampler.Result result = sample("2*x - 3", -10, 10);
+        assertEquals(101, result.getEvaluations());
+        assertEquals(801, result.getFixedStepEvaluations());
+        assertEquals(-10.0, result.x(0), 0.0);
+        assertEquals(10.0, result.x(result.size() - 1), 0.0);
+        assertFalse(result.isBudgetExhausted());
+    }
+
+    @Test
+    public void testSmoothCurvesStayWithinToleranceWithFewerEvaluations() {
+        for (String function : new String[] {"sin(x)", "x^3/50 - x", "x^2", "cos(3*x) * 4"}) {
+            AdaptiveSampler.Result result = sample(function, -10, 10);
+            assertTrue(function + ": " + result, result.getEvaluations() < result.getFixedStepEvaluations());
+            assertTrue(function + ": erro de " + maxPixelError(function, result) + " px",
+                       maxPixelError(function, result) < 1);
+        }
+    }
+
+    @Test
+    public void testPointsAreStrictlyIncreasing() {
+        AdaptiveSampler.Result result = sample("sin(1/x)", -1.01, 1.3);
+        assertEquals(result.getEvaluations(), result.size());
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.x(i) > result.x(i - 1));
+        }
+    }
+
+    @Test
+    public void testSharpFeatureGetsDenserSampling() {
+        AdaptiveSampler.Result result = sample("sin(1/x)", -1.01, 1.3);
+        int nearZero = 0;
+        int farFromZero = 0;
+        for (int i = 0; i < result.size(); i++) {
+            if (Math.abs(result.x(i)) < 0.1) {
+                nearZero++;
+            } else if (result.x(i) > 1.0 && result.x(i) < 1.2) {
+                farFromZero++;
+            }
+        }
+        // Faixas de mesma largura: perto de 0 a curva oscila e recebe bem mais pontos
+        assertTrue(nearZero + " perto de 0, " + farFromZero + " longe", nearZero > 20 * farFromZero);
+        // Mais pontos que o passo fixo de 1 pixel teria na mesma faixa (8 pixels)
+        assertTrue(nearZero > 0.2 * X_SCALE * 4);
+    }
+
+    @Test
+    public void testBudgetIsAHardCap() {
+        AdaptiveSampler sampler = new AdaptiveSampler(AdaptiveSampler.DEFAULT_TOLERANCE, AdaptiveSampler.DEFAULT_MAX_TURN, 200);
+        AdaptiveSampler.Result result = sampler.sample(new FunctionEvaluator(CompiledExpression.compile("sin(1/x)")),
+                                                       -1.01, 1.3, X_SCALE, Y_SCALE);
+        assertEquals(200, result.getEvaluations());
+        assertTrue(result.isBudgetExhausted());
+    }
+
+    @Test
+    public void testDomainEdgeIsLocated() {
+        // sqrt(x) não é definida para x < 0: a borda deve ficar a menos de um pixel do último NaN
+        AdaptiveSampler.Result result = sample("sqrt(x)", -3.3, 5);
+        double lastNaN = Double.NEGATIVE_INFINITY;
+        double firstFinite = Double.NaN;
+        for (int i = 0; i < result.size(); i++) {
+            if (Double.isNaN(result.y(i))) {
+                lastNaN = result.x(i);
+            } else if (Double.isNaN(firstFinite)) {
+                firstFinite = result.x(i);
+            }
+        }
+        assertTrue(lastNaN < 0 && firstFinite >= 0);
+        assertTrue((firstFinite - lastNaN) * X_SCALE < 0.1);
+    }
+
+    @Test
+    public void testCancellationStopsSampling() {
+        int[] checks = new int[1];
+        AdaptiveSampler.Result result = new AdaptiveSampler().sample(
+                new FunctionEvaluator(CompiledExpression.compile("sin(1/x)")), -1.01, 1.3, X_SCALE, Y_SCALE,
+                () -> ++checks[0] > 2);
+        assertNull(result);
+        assertEquals(3, checks[0]);
+    }
+
+    @Test
+    public void testSingularPointOnDefaultWindowBecomesGap() {
+        // Em [-10, 10], x = 0 cai na grade inicial em várias larguras de painel: 1/x gera erro ali
+        for (int width : new int[] {300, 600, 800, 1920}) {
+            AdaptiveSampler.Result result = new AdaptiveSampler().sample(
+                    new FunctionEvaluator(CompiledExpression.compile("sin(1/x)")), -10, 10, width / 20.0, Y_SCALE);
+            int gaps = 0;
+            int finite = 0;
+            for (int i = 0; i < result.size(); i++) {
+                if (Double.isNaN(result.y(i))) {
+                    gaps++;
+                    assertEquals(0.0, result.x(i), 0.0);
+                } else {
+                    finite++;
+                }
+            }
+            assertEquals("largura " + width, 1, gaps);
+            // O resto da curva continua sendo refinado perto da singularidade
+            assertTrue("largura " + width + ": " + result, finite > result.getEvaluations() / 2
+                       && result.getEvaluations() > (int) Math.ceil(width / AdaptiveSampler.COARSE_STEP) + 1);
+        }
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testFunctionFailingEverywhereStillThrows() {
+        sample("1/(x-x)", -10, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyWindow() {
+        sample("x", 1, 1);
+    }
+}
@@ -0,0 +1,88 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+
+/**
+ * Benchmark manual (não é um teste JUnit): avaliações e tempo da amostragem adaptativa
+ * contra o passo fixo de 1 pixel, em um painel de 1920 x 1080 com x e y em [-10, 10].
+ *
+ * O erro é a maior distância vertical, em pixels, entre a poligonal desenhada e a função,
+ * medida em uma grade 16 vezes mais densa que os pixels. A janela é a padrão do gráfico:
+ * x = 0 cai nas grades, e pontos em que a função gera erro (ex: {@code sin(1/x)}) viram lacunas.
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.AdaptiveSamplingBenchmark
+ */
+public class AdaptiveSamplingBenchmark {
+
+    private static final String[] FUNCTIONS = {
+        "2*x - 3", "x^2", "sin(x)", "cos(3*x) * 4", "sqrt(x)", "sin(1/x)", "tan(x)"
+    };
+    private static final double WIDTH = 1920;
+    private static final double HEIGHT = 1080;
+    private static final double X_MIN = -10;
+    private static final double X_MAX = 10;
+    private static final double X_SCALE = WIDTH / (X_MAX - X_MIN);
+    private static final double Y_SCALE = HEIGHT / 20;
+
+    public static void main(String[] args) {
+        System.out.printf("%-16s %10s %10s %10s %10s %10s%n", "função", "fixo", "adaptativo", "erro fixo", "erro adapt.", "tempo");
+        AdaptiveSampler sampler = new AdaptiveSampler();
+        int fixedSamples = (int) Math.floor(WIDTH) + 1;
+        for (String function : FUNCTIONS) {
+            FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile(function));
+            double[] fixedXs = new double[fixedSamples];
+            double[] fixedYs = new double[fixedSamples];
+            for (int i = 0; i < fixedSamples; i++) {
+                fixedXs[i] = FunctionEvaluator.sampleX(X_MIN, X_MAX, fixedSamples, i);
+                fixedYs[i] = evaluateOrNaN(evaluator, fixedXs[i]);
+            }
+            AdaptiveSampler.Result result = sampler.sample(evaluator, X_MIN, X_MAX, X_SCALE, Y_SCALE);
+
+            // Melhor de 20 rodadas, depois de 20 de aquecimento
+            for (int i = 0; i < 20; i++) {
+                sampler.sample(evaluator, X_MIN, X_MAX, X_SCALE, Y_SCALE);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 20; i++) {
+                long start = System.nanoTime();
+                sampler.sample(evaluator, X_MIN, X_MAX, X_SCALE, Y_SCALE);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%-16s %10d %10d %8.2fpx %8.2fpx %7.2f ms%n", function, fixedSamples, result.getEvaluations(),
+                              maxPixelError(evaluator, fixedXs, fixedYs),
+                              maxPixelError(evaluator, result.xs(), result.ys()), best / 1e6);
+        }
+    }
+
+    // Só conta pontos visíveis (|y| <= 10) de trechos em que as duas pontas são finitas
+    private static double maxPixelError(FunctionEvaluator evaluator, double[] xs, double[] ys) {
+        double worst = 0;
+        int segment = 0;
+        int dense = (int) (16 * WIDTH) + 1;
+        for (int k = 0; k < dense; k++) {
+            double x = FunctionEvaluator.sampleX(X_MIN, X_MAX, dense, k);
+            while (segment < xs.length - 2 && xs[segment + 1] < x) {
+                segment++;
+            }
+            double y = evaluateOrNaN(evaluator, x);
+            if (!Double.isFinite(ys[segment]) || !Double.isFinite(ys[segment + 1]) || !(Math.abs(y) <= 10)) {
+                continue;
+            }
+            double t = (x - xs[segment]) / (xs[segment + 1] - xs[segment]);
+            double line = ys[segment] + t * (ys[segment + 1] - ys[segment]);
+            worst = Math.max(worst, Math.abs(line - y) * Y_SCALE);
+        }
+        return worst;
+    }
+
+    // Como no gráfico, um ponto com erro é uma lacuna
+    private static double evaluateOrNaN(FunctionEvaluator evaluator, double x) {
+        try {
+            return evaluator.evaluate(x);
+        } catch (ExpressionException | IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+}
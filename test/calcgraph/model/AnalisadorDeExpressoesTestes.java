@@ -87,6 +87,14 @@ public class AnalisadorDeExpressoesTestes {
         assertEquals(20.0, (Double) resultado.getValor(), 0.0001);
     }
     
+    @Test
+    public void testarAvaliarExpressao_MenosUnarioAntesDeParenteses() {
+        // Testa o sinal unário aplicado a um grupo inteiro.
+        String expressao = "-(2 + 3) * -(-4)";
+        ResultadoAvaliacao resultado = AnalisadorDeExpressoes.avaliarExpressao(expressao);
+        assertEquals(-20.0, (Double) resultado.getValor(), 0.0001);
+    }
+    
     @Test(expected = ExpressionException.class)
     public void testarAvaliarExpressao_ExpressaoInvalida() {
         // Testa se uma exceção é lançada para uma expressão inválida.
@@ -0,0 +1,60 @@
+package calcgraph.model;
+
+import calcgraph.model.exception.ExpressionException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para GraphPlotter.
+ * Cobre a detecção dos parâmetros que viram sliders e os nomes das funções na legenda
+ * (sem abrir a interface).
+ */
+public class GraphPlotterTestes {
+
+    @Test
+    public void testDetectParameters_Quadratic() {
+        assertEquals(Arrays.asList("a", "b", "c"), GraphPlotter.detectParameters("a*x^2 + b*x + c"));
+    }
+
+    @Test
+    public void testDetectParameters_FunctionCallsAreNotParameters() {
+        assertEquals(Arrays.asList("a", "w"), GraphPlotter.detectParameters("a * sin(w*x) + a + pi"));
+    }
+
+    @Test
+    public void testDetectParameters_MisspelledFunctionIsRejected() {
+        try {
+            GraphPlotter.detectParameters("2*sinx*x");
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Nome desconhecido: 'sinx'. Parâmetros são letras isoladas (ex: a, b, c).", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDetectParameters_FunctionWithoutParenthesesIsRejected() {
+        try {
+            GraphPlotter.detectParameters("a*sqrt*x");
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("A função 'sqrt' precisa de parênteses.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDetectParameters_PlainFunction() {
+        assertEquals(Collections.emptyList(), GraphPlotter.detectParameters("x^2 + sqrt(abs(x)) * e"));
+    }
+
+    @Test
+    public void testFunctionNames() {
+        assertEquals("f", GraphPlotter.functionName(0));
+        assertEquals("g", GraphPlotter.functionName(1));
+        assertEquals("h", GraphPlotter.functionName(2));
+        assertEquals("w", GraphPlotter.functionName(9));
+        assertEquals("f11", GraphPlotter.functionName(10));
+    }
+}
@@ -0,0 +1,128 @@
+package calcgraph.model;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classe de testes para M4Decimator.
+ * A poligonal reduzida deve cobrir, em cada coluna de pixels, a mesma faixa vertical que a original.
+ */
+public class M4DecimatorTestes {
+
+    private static final int WIDTH = 800;
+
+    private static M4Decimator decimate(double[] xs, double[] ys) {
+        M4Decimator decimator = new M4Decimator();
+        for (int i = 0; i < xs.length; i++) {
+            decimator.add(xs[i], ys[i]);
+        }
+        decimator.flush();
+        return decimator;
+    }
+
+    // Menor e maior y alcançados pela poligonal dentro de cada coluna [c, c + 1)
+    private static double[][] columnExtents(double[] xs, double[] ys, int n) {
+        double[][] extents = new double[WIDTH][];
+        for (int i = 0; i + 1 < n; i++) {
+            for (int c = Math.max(0, (int) Math.floor(xs[i])); c <= Math.min(WIDTH - 1, (int) Math.floor(xs[i + 1])); c++) {
+                double from = Math.max(c, xs[i]);
+                double to = Math.min(c + 1, xs[i + 1]);
+                if (from > to) {
+                    continue;
+                }
+                include(extents, c, yAt(xs, ys, i, from));
+                include(extents, c, yAt(xs, ys, i, to));
+                if (xs[i] == xs[i + 1]) {
+                    include(extents, c, ys[i + 1]); // Segmento vertical
+                }
+            }
+        }
+        return extents;
+    }
+
+    private static double yAt(double[] xs, double[] ys, int i, double x) {
+        if (xs[i + 1] == xs[i]) {
+            return ys[i];
+        }
+        return ys[i] + (ys[i + 1] - ys[i]) * (x - xs[i]) / (xs[i + 1] - xs[i]);
+    }
+
+    private static void include(double[][] extents, int c, double y) {
+        if (extents[c] == null) {
+            extents[c] = new double[] {y, y};
+        }
+        extents[c][0] = Math.min(extents[c][0], y);
+        extents[c][1] = Math.max(extents[c][1], y);
+    }
+
+    @Test
+    public void testOversampledCurveIsBoundedAndCoversSamePixels() {
+        // sin(1/x) perto de 0, com 1 milhão de amostras em 800 colunas
+        int n = 1_000_000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = (double) i * WIDTH / n;
+            double x = (xs[i] - 400) / 4000;
+            ys[i] = 300 - 250 * Math.sin(1 / x);
+        }
+        M4Decimator decimator = decimate(xs, ys);
+        assertTrue(decimator.size() + " pontos", decimator.size() <= 4 * WIDTH);
+
+        double[][] expected = columnExtents(xs, ys, n);
+        double[][] actual = columnExtents(decimator.xs(), decimator.ys(), decimator.size());
+        for (int c = 0; c < WIDTH; c++) {
+            assertEquals("coluna " + c, expected[c][0], actual[c][0], 1e-9);
+            assertEquals("coluna " + c, expected[c][1], actual[c][1], 1e-9);
+        }
+        assertEquals(n, decimator.getAddedCount());
+    }
+
+    @Test
+    public void testKeepsFirstMinMaxLastInOrder() {
+        M4Decimator decimator = decimate(new double[] {10.0, 10.2, 10.4, 10.6, 10.8, 11.5},
+                                         new double[] {5, 9, 1, 4, 6, 3});
+        assertEquals(5, decimator.size());
+        double[] expectedX = {10.0, 10.2, 10.4, 10.8, 11.5};
+        double[] expectedY = {5, 9, 1, 6, 3};
+        for (int i = 0; i < expectedX.length; i++) {
+            assertEquals(expectedX[i], decimator.xs()[i], 0.0);
+            assertEquals(expectedY[i], decimator.ys()[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testSparseCurveIsUnchanged() {
+        Random random = new Random(7);
+        double[] xs = new double[200];
+        double[] ys = new double[200];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 4 * i + random.nextDouble();
+            ys[i] = random.nextDouble() * 600;
+        }
+        M4Decimator decimator = decimate(xs, ys);
+        assertEquals(xs.length, decimator.size());
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(xs[i], decimator.xs()[i], 0.0);
+            assertEquals(ys[i], decimator.ys()[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testResetReusesBuffers() {
+        M4Decimator decimator = new M4Decimator();
+        for (int i = 0; i < 5000; i++) {
+            decimator.add(i * 0.5, i % 7);
+        }
+        decimator.flush();
+        double[] buffer = decimator.xs();
+        decimator.reset();
+        assertEquals(0, decimator.size());
+        decimator.add(1, 1);
+        decimator.flush();
+        assertEquals(1, decimator.size());
+        assertTrue(buffer == decimator.xs());
+    }
+}
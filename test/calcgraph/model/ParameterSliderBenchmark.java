@@ -0,0 +1,102 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Benchmark manual (não é um teste JUnit): tempo de quadro ao arrastar os sliders de
+ * {@code a*x^2 + b*x + c} com 1920 colunas, o trabalho de CPU que o {@link GraphPlotter}
+ * faz por quadro (avaliar a grade e montar os pontos da curva), sem a renderização do JavaFX.
+ *
+ * Compara a troca de parâmetros nos slots com o caminho antigo, que remontava o texto da
+ * função e compilava uma expressão nova a cada mudança.
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.ParameterSliderBenchmark
+ */
+public class ParameterSliderBenchmark {
+
+    private static final int COLUMNS = 1920;
+    private static final int FRAMES = 2000;
+    private static final double FRAME_BUDGET_MS = 1000.0 / 60;
+
+    public static void main(String[] args) {
+        double[] xs = new double[COLUMNS];
+        double[] ys = new double[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            xs[i] = FunctionEvaluator.sampleX(-10, 10, COLUMNS, i);
+        }
+        double[] pointXs = new double[COLUMNS];
+        double[] pointYs = new double[COLUMNS];
+
+        FunctionEvaluator sliders = new FunctionEvaluator(CompiledExpression.compile("a*x^2 + b*x + c", "x", "a", "b", "c"));
+        long[] parameterFrames = measure(frame -> {
+            sliders.setParameter("a", a(frame));
+            sliders.setParameter("b", b(frame));
+            sliders.setParameter("c", c(frame));
+            sliders.evaluate(xs, ys);
+            toPoints(ys, pointXs, pointYs);
+        });
+        long[] recompileFrames = measure(frame -> {
+            // Cada quadro é uma função nova: sem cache e sem promoção ao bytecode
+            String function = String.format(Locale.US, "(%.6f)*x^2 + (%.6f)*x + (%.6f)", a(frame), b(frame), c(frame));
+            new FunctionEvaluator(CompiledExpression.compile(function)).evaluate(xs, ys);
+            toPoints(ys, pointXs, pointYs);
+        });
+
+        System.out.printf("%d colunas, %d quadros, orçamento de %.1f ms por quadro%n", COLUMNS, FRAMES, FRAME_BUDGET_MS);
+        System.out.printf("%-22s %10s %10s %10s%n", "caminho", "mediana", "p99", "pior");
+        report("parâmetros em slots", parameterFrames);
+        report("recompilar o texto", recompileFrames);
+    }
+
+    private interface Frame {
+        void run(int frame);
+    }
+
+    private static long[] measure(Frame frame) {
+        for (int i = 0; i < FRAMES; i++) {
+            frame.run(i);
+        }
+        long[] nanos = new long[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            long start = System.nanoTime();
+            frame.run(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void report(String name, long[] nanos) {
+        System.out.printf("%-22s %7.3f ms %7.3f ms %7.3f ms%n", name,
+                          nanos[nanos.length / 2] / 1e6, nanos[nanos.length * 99 / 100] / 1e6, nanos[nanos.length - 1] / 1e6);
+    }
+
+    // Mesmo mapeamento para a tela do GraphPlotter (painel de 1920 x 1080, y em [-10, 10])
+    private static int toPoints(double[] ys, double[] pointXs, double[] pointYs) {
+        int count = 0;
+        for (int i = 0; i < ys.length; i++) {
+            double yPane = (ys[i] + 10) * -1080 / 20 + 1080;
+            if (!Double.isNaN(yPane) && !Double.isInfinite(yPane)) {
+                pointXs[count] = i;
+                pointYs[count] = yPane;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double a(int frame) {
+        return Math.sin(frame * 0.01);
+    }
+
+    private static double b(int frame) {
+        return 2 * Math.cos(frame * 0.013);
+    }
+
+    private static double c(int frame) {
+        return (frame % 200) / 20.0 - 5;
+    }
+}
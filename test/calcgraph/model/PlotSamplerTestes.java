@@ -0,0 +1,396 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classe de testes para PlotSampler.
+ * A thread de amostragem e a do JavaFX são simuladas por filas executadas manualmente,
+ * para controlar a ordem entre pedidos novos, amostragens e publicações.
+ */
+public class PlotSamplerTestes {
+
+    private final ArrayDeque<Runnable> worker = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> fxThread = new ArrayDeque<>();
+    private final PlotSampler sampler = new PlotSampler(worker::add, fxThread::add);
+    private final List<PlotSampler.Samples> received = new ArrayList<>();
+    private final List<ExpressionException> errors = new ArrayList<>();
+
+    private long sample(CompiledExpression expression, Map<String, Double> parameters, double step, long from, long to) {
+        return sampler.sampleGrid(expression, parameters, step, from, to, received::add, errors::add);
+    }
+
+    private static void runAll(ArrayDeque<Runnable> queue) {
+        while (!queue.isEmpty()) {
+            queue.poll().run();
+        }
+    }
+
+    @Test
+    public void testPublishesSampledCurve() {
+        CompiledExpression expression = CompiledExpression.compile("x^2 - 3*x");
+        long generation = sample(expression, Collections.emptyMap(), 1.0 / 300, -1200, 1801);
+        assertTrue(received.isEmpty());
+        runAll(worker);
+        // A curva só é entregue pela thread da interface
+        assertTrue(received.isEmpty());
+        runAll(fxThread);
+
+        assertEquals(1, received.size());
+        PlotSampler.Samples samples = received.get(0);
+        assertEquals(generation, samples.getGeneration());
+        assertEquals(3001, samples.size());
+        assertEquals(-4.0, samples.getXMin(), 1e-12);
+        assertEquals(6.0, samples.getXMax(), 1e-12);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals((i - 1200) * (1.0 / 300), samples.x(i), 0.0);
+            assertEquals(evaluator.evaluate(samples.x(i)), samples.y(i), 0.0);
+        }
+        assertEquals(1, sampler.getCompletedCount());
+    }
+
+    @Test
+    public void testPublishesAdaptiveCurve() {
+        CompiledExpression expression = CompiledExpression.compile("x^2");
+        sampler.sample(expression, Collections.emptyMap(), -10, 10, new AdaptiveSampler(), 40, 30,
+                       received::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        PlotSampler.Samples samples = received.get(0);
+        assertEquals(samples.size(), samples.getEvaluations());
+        assertEquals(801, samples.getFixedStepEvaluations());
+        assertTrue(samples.getEvaluations() < samples.getFixedStepEvaluations());
+        assertEquals(-10.0, samples.x(0), 0.0);
+        assertEquals(100.0, samples.y(samples.size() - 1), 0.0);
+    }
+
+    @Test
+    public void testStaleJobIsCancelledBeforeSampling() {
+        CompiledExpression expression = CompiledExpression.compile("sin(x)");
+        // Vários quadros de arrasto antes que a thread de amostragem comece
+        for (int i = 0; i < 5; i++) {
+            sample(expression, Collections.emptyMap(), 0.01, -1000 + 100 * i, 1000 + 100 * i);
+        }
+        runAll(worker);
+        runAll(fxThread);
+
+        assertEquals(1, received.size());
+        assertEquals(-6.0, received.get(0).getXMin(), 1e-12);
+        assertEquals(5, sampler.getSubmittedCount());
+        assertEquals(4, sampler.getCancelledCount());
+        assertEquals(0, sampler.getDroppedCount());
+    }
+
+    @Test
+    public void testStaleResultIsDropped() {
+        CompiledExpression expression = CompiledExpression.compile("x^3");
+        sample(expression, Collections.emptyMap(), 0.004, -250, 251);
+        runAll(worker);
+        // Zoom chega depois de a amostragem terminar, mas antes de ela ser publicada
+        sample(expression, Collections.emptyMap(), 0.002, -250, 251);
+        runAll(fxThread);
+        assertTrue(received.isEmpty());
+        assertEquals(1, sampler.getDroppedCount());
+
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(1, received.size());
+        assertEquals(0.5, received.get(0).getXMax(), 0.0);
+        assertEquals(501, received.get(0).getEvaluations());
+    }
+
+    @Test
+    public void testPanEvaluatesOnlyExposedStrip() {
+        CompiledExpression expression = CompiledExpression.compile("sin(x) * x^2");
+        sample(expression, Collections.emptyMap(), 0.01, -400, 401);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(801, received.get(0).getEvaluations());
+
+        // Arrasto de 37 colunas para a direita e depois de 90 para a esquerda
+        sample(expression, Collections.emptyMap(), 0.01, -363, 438);
+        runAll(worker);
+        runAll(fxThread);
+        sample(expression, Collections.emptyMap(), 0.01, -453, 348);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(37, received.get(1).getEvaluations());
+        assertEquals(90, received.get(2).getEvaluations());
+        assertEquals(801, received.get(2).getFixedStepEvaluations());
+
+        // Idêntico, bit a bit, a avaliar a janela inteira em um amostrador novo
+        PlotSampler fresh = new PlotSampler(Runnable::run, Runnable::run);
+        List<PlotSampler.Samples> full = new ArrayList<>();
+        fresh.sampleGrid(expression, Collections.emptyMap(), 0.01, -453, 348, full::add, errors::add);
+        PlotSampler.Samples panned = received.get(2);
+        assertEquals(full.get(0).size(), panned.size());
+        for (int i = 0; i < panned.size(); i++) {
+            assertEquals(Double.doubleToLongBits(full.get(0).x(i)), Double.doubleToLongBits(panned.x(i)));
+            assertEquals(Double.doubleToLongBits(full.get(0).y(i)), Double.doubleToLongBits(panned.y(i)));
+        }
+    }
+
+    @Test
+    public void testZoomAndParameterChangeReevaluateEverything() {
+        CompiledExpression expression = CompiledExpression.compile("a*x", "x", "a");
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("a", 2.0);
+        sample(expression, parameters, 0.01, 0, 100);
+        sample(expression, parameters, 0.02, 0, 100);
+        runAll(worker);
+        parameters.put("a", 3.0);
+        sample(expression, parameters, 0.02, 10, 110);
+        runAll(worker);
+        runAll(fxThread);
+
+        PlotSampler.Samples samples = received.get(0);
+        assertEquals(100, samples.getEvaluations());
+        assertEquals(3 * 0.02 * 10, samples.y(0), 1e-12);
+
+        // Zoom: mesmo trecho da grade, outro passo
+        sample(expression, parameters, 0.01, 10, 110);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(100, received.get(1).getEvaluations());
+    }
+
+    @Test
+    public void testCancelDiscardsPendingJobs() {
+        sample(CompiledExpression.compile("x"), Collections.emptyMap(), 0.1, 0, 10);
+        sampler.cancel();
+        runAll(worker);
+        runAll(fxThread);
+        assertTrue(received.isEmpty());
+        assertEquals(1, sampler.getCancelledCount());
+    }
+
+    @Test
+    public void testParametersAreCopiedWhenRequested() {
+        CompiledExpression expression = CompiledExpression.compile("a*x + b", "x", "a", "b");
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("a", 2.0);
+        parameters.put("b", -1.0);
+        sample(expression, parameters, 1, 0, 5);
+        // O slider continua mudando o mapa enquanto a amostragem espera na fila
+        parameters.put("a", 100.0);
+        runAll(worker);
+        runAll(fxThread);
+
+        PlotSampler.Samples samples = received.get(0);
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals(2 * i - 1, samples.y(i), 0.0);
+        }
+    }
+
+    @Test
+    public void testErrorIsPublishedOnlyForCurrentRequest() {
+        CompiledExpression expression = CompiledExpression.compile("1/(x-x)");
+        sample(expression, Collections.emptyMap(), 0.02, -50, 50);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(1, errors.size());
+        assertEquals("Divisão por zero.", errors.get(0).getMessage());
+
+        sample(expression, Collections.emptyMap(), 0.02, -50, 50);
+        runAll(worker);
+        sampler.cancel();
+        runAll(fxThread);
+        assertEquals(1, errors.size());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testSeveralFunctionsShareTheGridAndArePublishedTogether() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        CompiledExpression wave = CompiledExpression.compile("sin(x) * a", "x", "a");
+        CompiledExpression line = CompiledExpression.compile("b*x + 1", "x", "b");
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("a", 3.0);
+        parameters.put("b", -2.0);
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        sampler.sampleGrid(Arrays.asList(square, wave, line), parameters, 0.01, -300, 301, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        assertEquals(1, batches.size());
+        List<PlotSampler.Samples> curves = batches.get(0);
+        assertEquals(3, curves.size());
+        // Os mesmos x para todas as funções, cada uma com os seus parâmetros
+        for (PlotSampler.Samples samples : curves) {
+            assertEquals(601, samples.size());
+            for (int i = 0; i < samples.size(); i++) {
+                assertEquals(curves.get(0).x(i), samples.x(i), 0.0);
+            }
+        }
+        FunctionEvaluator wavePoint = new FunctionEvaluator(wave);
+        wavePoint.setParameter("a", 3.0);
+        for (int i = 0; i < 601; i++) {
+            double x = curves.get(0).x(i);
+            assertEquals(x * x, curves.get(0).y(i), 0.0);
+            assertEquals(wavePoint.evaluate(x), curves.get(1).y(i), 0.0);
+            assertEquals(-2 * x + 1, curves.get(2).y(i), 1e-12);
+        }
+        assertEquals(1, sampler.getCompletedCount());
+    }
+
+    @Test
+    public void testFailingFunctionDoesNotHideTheOthers() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        CompiledExpression broken = CompiledExpression.compile("1/(x-x)");
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        sampler.sampleGrid(Arrays.asList(broken, square), Collections.emptyMap(), 0.02, -50, 50, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        assertEquals(1, errors.size());
+        assertEquals("Divisão por zero.", errors.get(0).getMessage());
+        assertEquals(1, batches.size());
+        assertNull(batches.get(0).get(0));
+        assertEquals(100, batches.get(0).get(1).size());
+    }
+
+    @Test
+    public void testRepeatedFunctionIsSampledOnce() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        sampler.sampleGrid(Arrays.asList(square, square), Collections.emptyMap(), 0.02, -50, 50, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        List<PlotSampler.Samples> curves = batches.get(0);
+        assertSame(curves.get(0), curves.get(1));
+        assertEquals(100, curves.get(0).getEvaluations());
+    }
+
+    @Test
+    public void testEachFunctionReusesItsOwnSamplesWhenPanning() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        CompiledExpression cube = CompiledExpression.compile("x^3");
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        List<CompiledExpression> both = Arrays.asList(square, cube);
+        sampler.sampleGrid(both, Collections.emptyMap(), 0.01, 0, 1000, batches::add, errors::add);
+        runAll(worker);
+        sampler.sampleGrid(both, Collections.emptyMap(), 0.01, 10, 1010, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        // O primeiro pedido ficou obsoleto; o segundo avaliou só a faixa nova de cada função
+        assertEquals(1, batches.size());
+        for (PlotSampler.Samples samples : batches.get(0)) {
+            assertEquals(10, samples.getEvaluations());
+        }
+        double x = batches.get(0).get(1).x(999);
+        assertEquals(x * x * x, batches.get(0).get(1).y(999), 1e-9);
+    }
+
+    @Test
+    public void testFunctionLeftOutOfARequestKeepsItsSamples() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        CompiledExpression cube = CompiledExpression.compile("x^3");
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        List<CompiledExpression> both = Arrays.asList(square, cube);
+        sampler.sampleGrid(both, Collections.emptyMap(), 0.01, 0, 1000, batches::add, errors::add);
+        runAll(worker);
+        // Blocos que só faltam a uma função: o pedido seguinte é só dela
+        sampler.sampleGrid(Collections.singletonList(cube), Collections.emptyMap(), 0.01, 10, 1010,
+                           batches::add, errors::add);
+        runAll(worker);
+        sampler.sampleGrid(both, Collections.emptyMap(), 0.01, 10, 1010, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        // x^2 ficou fora do pedido do meio, mas continua com as amostras do primeiro
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).get(0).getEvaluations());
+        assertEquals(0, batches.get(0).get(1).getEvaluations());
+    }
+
+    @Test
+    public void testRetainForgetsRemovedFunctions() {
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        CompiledExpression cube = CompiledExpression.compile("x^3");
+        sampler.sampleGrid(Arrays.asList(square, cube), Collections.emptyMap(), 0.01, 0, 1000,
+                           results -> { }, errors::add);
+        sampler.retain(Collections.singletonList(square));
+        // Só roda depois do pedido já feito
+        assertEquals(0, sampler.getTrackCount());
+        runAll(worker);
+        assertEquals(1, sampler.getTrackCount());
+
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        sampler.sampleGrid(Arrays.asList(square, cube), Collections.emptyMap(), 0.01, 0, 1000, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(0, batches.get(0).get(0).getEvaluations());
+        assertEquals(1000, batches.get(0).get(1).getEvaluations());
+    }
+
+    @Test
+    public void testRuntimeFailureIsPublishedAsError() {
+        CompiledExpression factorial = CompiledExpression.compile("fat(x)");
+        CompiledExpression square = CompiledExpression.compile("x^2");
+        List<List<PlotSampler.Samples>> batches = new ArrayList<>();
+        sampler.sampleGrid(Arrays.asList(factorial, square), Collections.emptyMap(), 1, -5, 5, batches::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        // O fatorial de negativo não é ExpressionException, mas chega como erro da função
+        assertEquals(1, errors.size());
+        assertEquals("O fatorial não está definido para números negativos.", errors.get(0).getMessage());
+        assertTrue(errors.get(0).getCause() instanceof IllegalArgumentException);
+        assertNull(batches.get(0).get(0));
+        assertEquals(10, batches.get(0).get(1).size());
+        assertEquals(1, sampler.getCompletedCount());
+    }
+
+    @Test
+    public void testRuntimeFailureInAdaptiveSamplingIsPublishedAsError() {
+        // fat de negativo gera IllegalArgumentException; pontos isolados com erro viram lacunas,
+        // então a função falha na janela inteira
+        sampler.sample(CompiledExpression.compile("fat(x - 20)"), Collections.emptyMap(), -10, 10, new AdaptiveSampler(),
+                       40, 30, received::add, errors::add);
+        runAll(worker);
+        runAll(fxThread);
+
+        assertEquals(1, errors.size());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testParameterChangeDropsJobInFlight() {
+        // Mesma sequência do GraphPlotter ao mover um slider sem amostragem adaptativa
+        CompiledExpression expression = CompiledExpression.compile("a*x", "x", "a");
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("a", 1.0);
+        sample(expression, parameters, 1, 0, TileCache.TILE_SIZE);
+        runAll(worker); // Amostrada com a = 1, entrega ainda na fila da interface
+
+        parameters.put("a", 2.0);
+        sampler.cancel(); // setParameter
+        runAll(fxThread);
+        // Os blocos de a = 1 não chegam ao cache recém-limpo
+        assertTrue(received.isEmpty());
+        assertEquals(1, sampler.getDroppedCount());
+
+        sample(expression, parameters, 1, 0, TileCache.TILE_SIZE);
+        runAll(worker);
+        runAll(fxThread);
+        assertEquals(1, received.size());
+        assertEquals(2.0 * (TileCache.TILE_SIZE - 1), received.get(0).y(TileCache.TILE_SIZE - 1), 0.0);
+    }
+}
@@ -0,0 +1,87 @@
+package calcgraph.model;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classe de testes para RedrawScheduler.
+ * Os pulsos do JavaFX são simulados chamando pulse() diretamente, sem iniciar a interface.
+ */
+public class RedrawSchedulerTestes {
+
+    // Conta redesenhos e registra se o timer estaria ativo
+    private static final class ManualScheduler extends RedrawScheduler {
+        boolean running;
+
+        ManualScheduler(Runnable redraw) {
+            super(redraw);
+        }
+
+        @Override
+        void startPulses() {
+            running = true;
+        }
+
+        @Override
+        void stopPulses() {
+            running = false;
+        }
+    }
+
+    @Test
+    public void testManyRequestsInOnePulseDrawOnce() {
+        int[] frames = new int[1];
+        ManualScheduler scheduler = new ManualScheduler(() -> frames[0]++);
+        for (int i = 0; i < 25; i++) {
+            scheduler.requestRedraw();
+        }
+        assertTrue(scheduler.isDirty());
+        assertEquals(0, frames[0]);
+
+        scheduler.pulse();
+        assertEquals(1, frames[0]);
+        assertEquals(25, scheduler.getRequestCount());
+        assertEquals(1, scheduler.getRedrawCount());
+        assertEquals(24, scheduler.getSkippedCount());
+    }
+
+    @Test
+    public void testTimerStopsWhenIdle() {
+        int[] frames = new int[1];
+        ManualScheduler scheduler = new ManualScheduler(() -> frames[0]++);
+        scheduler.requestRedraw();
+        assertTrue(scheduler.running);
+        scheduler.pulse();
+        assertTrue(scheduler.running);
+        // Pulso sem pedido pendente: nada a desenhar, o timer para
+        scheduler.pulse();
+        assertFalse(scheduler.running);
+        assertEquals(1, frames[0]);
+
+        scheduler.requestRedraw();
+        assertTrue(scheduler.running);
+        scheduler.pulse();
+        assertEquals(2, frames[0]);
+        assertEquals(0, scheduler.getSkippedCount());
+    }
+
+    @Test
+    public void testRequestDuringRedrawIsDrawnOnNextPulse() {
+        int[] frames = new int[1];
+        RedrawScheduler[] holder = new RedrawScheduler[1];
+        ManualScheduler scheduler = new ManualScheduler(() -> {
+            if (frames[0]++ == 0) {
+                holder[0].requestRedraw();
+            }
+        });
+        holder[0] = scheduler;
+        scheduler.requestRedraw();
+        scheduler.pulse();
+        assertTrue(scheduler.isDirty());
+        scheduler.pulse();
+        assertEquals(2, frames[0]);
+        assertFalse(scheduler.isDirty());
+    }
+}
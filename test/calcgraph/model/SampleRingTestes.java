@@ -0,0 +1,88 @@
+package calcgraph.model;
+
+import calcgraph.model.evaluator.CompiledExpression;
+import calcgraph.model.evaluator.FunctionEvaluator;
+import calcgraph.model.exception.ExpressionException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para SampleRing.
+ * Depois de qualquer sequência de arrastos, o buffer deve ter exatamente as amostras
+ * que a avaliação da janela inteira produziria.
+ */
+public class SampleRingTestes {
+
+    private static final double STEP = 0.0125;
+
+    private static void assertWindow(FunctionEvaluator evaluator, SampleRing ring, long from, long to) {
+        double[] actual = new double[(int) (to - from)];
+        ring.copy(from, to, actual);
+        for (int i = 0; i < actual.length; i++) {
+            double expected = evaluator.evaluate((from + i) * STEP);
+            assertEquals("amostra " + (from + i), Double.doubleToLongBits(expected), Double.doubleToLongBits(actual[i]));
+        }
+    }
+
+    @Test
+    public void testRandomPansMatchFullEvaluation() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("sin(x) * cos(3*x) + x/7"));
+        SampleRing ring = new SampleRing();
+        Random random = new Random(42);
+        long from = -400;
+        for (int pan = 0; pan < 200; pan++) {
+            // Arrastos curtos, que dão a volta no buffer, e alguns saltos sem sobreposição
+            long shift = random.nextInt(10) == 0 ? random.nextInt(4000) - 2000 : random.nextInt(81) - 40;
+            from += shift;
+            assertTrue(ring.cover(evaluator, STEP, from, from + 801, 64, () -> false));
+            long overlap = Math.max(0, 801 - Math.abs(shift));
+            if (pan > 0) {
+                assertEquals(801 - overlap, ring.getLastEvaluated());
+            }
+            assertWindow(evaluator, ring, from, from + 801);
+        }
+    }
+
+    @Test
+    public void testStepChangeDiscardsSamples() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("x^2"));
+        SampleRing ring = new SampleRing();
+        ring.cover(evaluator, STEP, 0, 500, 128, () -> false);
+        ring.cover(evaluator, STEP * 2, 0, 500, 128, () -> false);
+        assertEquals(500, ring.getLastEvaluated());
+        ring.clear();
+        ring.cover(evaluator, STEP, 0, 500, 128, () -> false);
+        assertEquals(500, ring.getLastEvaluated());
+        assertWindow(evaluator, ring, 0, 500);
+    }
+
+    @Test
+    public void testCancelledCoverKeepsEvaluatedStrips() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("x^3"));
+        SampleRing ring = new SampleRing();
+        int[] checks = new int[1];
+        assertFalse(ring.cover(evaluator, STEP, 0, 1000, 100, () -> ++checks[0] > 3));
+        assertEquals(300, ring.size());
+        assertTrue(ring.cover(evaluator, STEP, 0, 1000, 100, () -> false));
+        assertEquals(700, ring.getLastEvaluated());
+        assertWindow(evaluator, ring, 0, 1000);
+    }
+
+    @Test
+    public void testErrorEmptiesBuffer() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("1/(x-1)"));
+        SampleRing ring = new SampleRing();
+        ring.cover(evaluator, 0.5, -10, 0, 4, () -> false);
+        try {
+            ring.cover(evaluator, 0.5, -5, 5, 4, () -> false);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+        assertEquals(0, ring.size());
+    }
+}
@@ -0,0 +1,84 @@
+package calcgraph.model;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classe de testes para TileCache.
+ */
+public class TileCacheTestes {
+
+    @Test
+    public void testLevelsArePowersOfTwo() {
+        assertEquals(0, TileCache.levelFor(1.0));
+        assertEquals(1.0, TileCache.stepOf(0), 0.0);
+        for (double step : new double[] {0.025, 0.0271, 0.049, 1.7, 300}) {
+            double levelStep = TileCache.stepOf(TileCache.levelFor(step));
+            assertTrue(step + " -> " + levelStep, levelStep <= step && levelStep > step / 2);
+        }
+        assertEquals(-1, TileCache.tileOf(-1));
+        assertEquals(0, TileCache.tileOf(TileCache.TILE_SIZE - 1));
+        assertEquals(1, TileCache.tileOf(TileCache.TILE_SIZE));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTileIsEvicted() {
+        TileCache cache = new TileCache(3 * TileCache.TILE_BYTES);
+        cache.put(5, 0, new double[TileCache.TILE_SIZE]);
+        cache.put(5, 1, new double[TileCache.TILE_SIZE]);
+        cache.put(5, 2, new double[TileCache.TILE_SIZE]);
+        assertNotNull(cache.get(5, 0)); // 0 passa a ser o mais recente
+        cache.put(6, 0, new double[TileCache.TILE_SIZE]);
+
+        assertEquals(3, cache.size());
+        assertEquals(3 * TileCache.TILE_BYTES, cache.getSizeBytes());
+        assertTrue(cache.contains(5, 0));
+        assertFalse(cache.contains(5, 1));
+        assertNull(cache.get(5, 1));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testZoomingBackReusesTiles() {
+        // Dez passos de zoom de 10% para dentro e dez para fora em volta de x = 3,
+        // em um painel de 800 pixels, contando os blocos que não estavam no cache
+        TileCache cache = new TileCache();
+        double xMin = -10;
+        double xMax = 10;
+        int[] missing = new int[2];
+        for (int step = 0; step < 20; step++) {
+            double factor = step < 10 ? 1 / 1.1 : 1.1;
+            xMin = 3 - (3 - xMin) * factor;
+            xMax = 3 + (xMax - 3) * factor;
+            int level = TileCache.levelFor((xMax - xMin) / 800);
+            double levelStep = TileCache.stepOf(level);
+            Set<Long> tiles = new HashSet<>();
+            for (long t = TileCache.tileOf((long) Math.floor(xMin / levelStep));
+                 t <= TileCache.tileOf((long) Math.ceil(xMax / levelStep)); t++) {
+                tiles.add(t);
+            }
+            for (long t : tiles) {
+                if (cache.get(level, t) == null) {
+                    missing[step < 10 ? 0 : 1]++;
+                    cache.put(level, t, new double[TileCache.TILE_SIZE]);
+                }
+            }
+        }
+        assertTrue(missing[0] > 0);
+        // Na volta, os níveis de zoom são os mesmos da ida: nenhum bloco é amostrado de novo
+        assertEquals(0, missing[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTileOfWrongSize() {
+        new TileCache().put(0, 0, new double[10]);
+    }
+}
@@ -0,0 +1,57 @@
+package calcgraph.model.evaluator;
+
+/**
+ * Benchmark manual (não é um teste JUnit): compara pontos por segundo entre
+ * o laço ponto a ponto {@code evaluate(double)} e a avaliação em lote
+ * {@code evaluate(double[], double[])} para 1k, 100k e 10M amostras.
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.evaluator.BatchEvaluationBenchmark
+ */
+public class BatchEvaluationBenchmark {
+
+    private static final String[] FUNCTIONS = {
+        "x^2 + 2*x - 1",
+        "3*x*x - 2*x + abs(x) / 4",
+        "sin(x) * cos(x) + sqrt(abs(x))"
+    };
+    private static final int[] SAMPLES = {1_000, 100_000, 10_000_000};
+
+    public static void main(String[] args) {
+        System.out.printf("%-34s %11s %16s %16s %8s%n", "função", "amostras", "ponto a ponto", "lote", "ganho");
+        for (String function : FUNCTIONS) {
+            FunctionEvaluator evaluator = new FunctionEvaluator(function);
+            for (int samples : SAMPLES) {
+                double[] xs = new double[samples];
+                double[] out = new double[samples];
+                for (int i = 0; i < samples; i++) {
+                    xs[i] = -10 + 20.0 * i / samples;
+                }
+                int repetitions = Math.max(3, 20_000_000 / samples);
+
+                double perPoint = pointsPerSecond(() -> {
+                    for (int i = 0; i < xs.length; i++) {
+                        out[i] = evaluator.evaluate(xs[i]);
+                    }
+                }, samples, repetitions);
+                double batch = pointsPerSecond(() -> evaluator.evaluate(xs, out), samples, repetitions);
+
+                System.out.printf("%-34s %11d %13.1f M/s %13.1f M/s %7.1fx%n",
+                                  function, samples, perPoint / 1e6, batch / 1e6, batch / perPoint);
+            }
+        }
+    }
+
+    // Melhor de várias rodadas, depois de uma rodada de aquecimento
+    private static double pointsPerSecond(Runnable run, int samples, int repetitions) {
+        for (int i = 0; i < repetitions; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return samples / (best / 1e9);
+    }
+}
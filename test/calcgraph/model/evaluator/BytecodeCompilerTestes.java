@@ -0,0 +1,121 @@
+package calcgraph.model.evaluator;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Classe de testes para BytecodeCompiler.
+ * Compara a classe gerada com o interpretador do PostfixEvaluator sobre expressões aleatórias.
+ */
+public class BytecodeCompilerTestes {
+
+    private static final String[] FUNCTIONS = {"sin", "cos", "tan", "log", "ln", "sqrt", "abs", "ceil", "floor"};
+    private static final String[] STATISTICS = {"mean", "mode", "median", "variance", "standardDeviation", "z", "t", "pa", "pg"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^"};
+    private static final double[] POINTS = {0.0, 1.0, -1.0, 0.5, -2.25, 3.0, 10.0, 1e-3, -1e4};
+
+    @Before
+    public void requireHiddenClasses() {
+        assumeTrue("JVM sem suporte a classes ocultas", BytecodeCompiler.isAvailable());
+    }
+
+    @Test
+    public void testCompile_DifferentialAgainstInterpreter() {
+        Random random = new Random(2024);
+        int compiled = 0;
+        for (int i = 0; i < 1500; i++) {
+            String expression = randomExpression(random, 4);
+            Program program = CompiledExpression.compile(expression).getProgram();
+            DoubleUnaryOperator function = BytecodeCompiler.compile(program);
+            assertNotNull(expression, function);
+            compiled++;
+            for (double x : POINTS) {
+                assertSameOutcome(expression, x, program, function);
+            }
+            for (int j = 0; j < 5; j++) {
+                assertSameOutcome(expression, (random.nextDouble() - 0.5) * 50, program, function);
+            }
+        }
+        assertEquals(1500, compiled);
+    }
+
+    @Test
+    public void testCompile_SameErrorsAsInterpreter() {
+        String[] expressions = {"1 / x", "1 / (x - x)", "fat(x - 5)", "(-3)!", "mean(x, 1 / x)", "x * (2.5)!"};
+        for (String expression : expressions) {
+            Program program = CompiledExpression.compile(expression).getProgram();
+            assertSameOutcome(expression, 0.0, program, BytecodeCompiler.compile(program));
+        }
+    }
+
+    @Test
+    public void testCompile_ConstantExpression() {
+        DoubleUnaryOperator function = BytecodeCompiler.compile(CompiledExpression.compile("2 * pi - 1").getProgram());
+        assertEquals(2 * Math.PI - 1, function.applyAsDouble(42.0), 0.0);
+    }
+
+    @Test
+    public void testCompile_HugeExpressionStaysInterpreted() {
+        StringBuilder expression = new StringBuilder("x");
+        for (int i = 0; i < 3000; i++) {
+            expression.append(" + ").append(i).append(".5");
+        }
+        Program program = CompiledExpression.compile(expression.toString()).getProgram();
+        assertNull(BytecodeCompiler.compile(program));
+        // Sem a classe gerada o FunctionEvaluator continua correto pelo interpretador
+        assertEquals(new PostfixEvaluator().evaluate(program, new double[] {2.0}),
+                     new FunctionEvaluator(expression.toString()).evaluate(2.0), 0.0);
+    }
+
+    private static void assertSameOutcome(String expression, double x, Program program, DoubleUnaryOperator function) {
+        double[] variables = new double[program.getVariableCount()];
+        if (variables.length > 0) {
+            variables[0] = x;
+        }
+        Object expected;
+        try {
+            expected = Double.doubleToLongBits(new PostfixEvaluator().evaluate(program, variables));
+        } catch (RuntimeException e) {
+            expected = e.getClass().getName() + ": " + e.getMessage();
+        }
+        Object actual;
+        try {
+            actual = Double.doubleToLongBits(function.applyAsDouble(x));
+        } catch (RuntimeException e) {
+            actual = e.getClass().getName() + ": " + e.getMessage();
+        }
+        assertEquals(expression + " em x=" + x, expected, actual);
+    }
+
+    // Gera expressões sempre entre parênteses, evitando sinais logo após "," e "!"
+    private static String randomExpression(Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(4) : random.nextInt(10);
+        switch (choice) {
+            case 0: return Integer.toString(random.nextInt(10));
+            case 1: return random.nextInt(100) / 8.0 + "";
+            case 2: return random.nextBoolean() ? "x" : "X";
+            case 3: return random.nextBoolean() ? "pi" : "e";
+            case 4: return "(-" + randomExpression(random, depth - 1) + ")";
+            case 5: return "(" + random.nextInt(7) + "!)";
+            case 6: return "fat(" + (random.nextInt(8) - 1) + ")";
+            case 7: return FUNCTIONS[random.nextInt(FUNCTIONS.length)] + "(" + randomExpression(random, depth - 1) + ")";
+            case 8: {
+                StringBuilder call = new StringBuilder(STATISTICS[random.nextInt(STATISTICS.length)]).append('(');
+                int arity = 1 + random.nextInt(5);
+                for (int i = 0; i < arity; i++) {
+                    call.append(i == 0 ? "" : ", ").append(randomExpression(random, depth - 1));
+                }
+                return call.append(')').toString();
+            }
+            default:
+                return "(" + randomExpression(random, depth - 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)]
+                       + " " + randomExpression(random, depth - 1) + ")";
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Classe de testes para ColumnKernels.
+ * Os laços vetoriais só são testados quando a JVM tem o módulo jdk.incubator.vector
+ * e a classe de src-simd foi compilada; devem ser idênticos, bit a bit, aos escalares.
+ */
+public class ColumnKernelsTestes {
+
+    private static final int[] BINARY = {Opcode.ADD, Opcode.SUB, Opcode.MUL, Opcode.DIV, Opcode.POW};
+    private static final int[] UNARY = {Opcode.SQUARE, Opcode.ABS, Opcode.SQRT, Opcode.SIN, Opcode.FLOOR};
+    // Tamanhos que não são múltiplos da largura do vetor, para exercitar o laço final
+    private static final int[] SIZES = {0, 1, 3, 7, 64, 1021};
+
+    @Test
+    public void testScalarKernelsAreAlwaysAvailable() {
+        assertNotNull(ColumnKernels.scalar());
+        assertNotNull(ColumnKernels.selected());
+        if (!Boolean.getBoolean("calcgraph.simd")) {
+            assertEquals(ColumnKernels.scalar(), ColumnKernels.selected());
+        }
+    }
+
+    @Test
+    public void testVectorKernelsMatchScalar() {
+        ColumnKernels vector = ColumnKernels.vector();
+        assumeTrue(vector != null);
+        ColumnKernels scalar = ColumnKernels.scalar();
+        Random random = new Random(15);
+        for (int n : SIZES) {
+            double[] a = values(random, n);
+            double[] b = values(random, n);
+            double s = random.nextDouble() * 8 - 4;
+            for (int opcode : BINARY) {
+                double[] expected = a.clone();
+                double[] actual = a.clone();
+                scalar.binaryColumns(opcode, expected, b, n);
+                vector.binaryColumns(opcode, actual, b, n);
+                assertSameBits(Opcode.name(opcode) + " coluna-coluna", expected, actual);
+
+                expected = a.clone();
+                actual = a.clone();
+                scalar.binaryColumnScalar(opcode, expected, s, n);
+                vector.binaryColumnScalar(opcode, actual, s, n);
+                assertSameBits(Opcode.name(opcode) + " coluna-escalar", expected, actual);
+
+                expected = new double[n];
+                actual = new double[n];
+                scalar.binaryScalarColumn(opcode, s, b, expected, n);
+                vector.binaryScalarColumn(opcode, s, b, actual, n);
+                assertSameBits(Opcode.name(opcode) + " escalar-coluna", expected, actual);
+            }
+            for (int opcode : UNARY) {
+                double[] expected = a.clone();
+                double[] actual = a.clone();
+                scalar.unaryColumn(opcode, expected, n);
+                vector.unaryColumn(opcode, actual, n);
+                assertSameBits(Opcode.name(opcode), expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testVectorDivisionByZero() {
+        ColumnKernels vector = ColumnKernels.vector();
+        assumeTrue(vector != null);
+        double[] b = new double[100];
+        Arrays.fill(b, 2);
+        b[97] = -0.0;
+        try {
+            vector.binaryColumns(Opcode.DIV, new double[100], b, 100);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+        try {
+            vector.binaryColumnScalar(Opcode.DIV, new double[100], 0, 100);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBatchEvaluatorWithVectorKernels() {
+        ColumnKernels vector = ColumnKernels.vector();
+        assumeTrue(vector != null);
+        String[] functions = {"3*x*x - 2*x + abs(x)/4", "sqrt(abs(x)) * (x - 1) / (x^2 + 1)", "x^3 - sin(x) + 2"};
+        double[] xs = new double[1000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = -25 + 50.0 * i / xs.length + 1e-3;
+        }
+        for (String function : functions) {
+            Program program = CompiledExpression.compile(function).getProgram();
+            double[] expected = new double[xs.length];
+            double[] actual = new double[xs.length];
+            new BatchEvaluator(program, 0, ColumnKernels.scalar()).evaluate(xs, expected, 0, xs.length);
+            new BatchEvaluator(program, 0, vector).evaluate(xs, actual, 0, xs.length);
+            assertSameBits(function, expected, actual);
+        }
+    }
+
+    private static double[] values(Random random, int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Sem zeros exatos, para a divisão não falhar; inclui negativos para sqrt gerar NaN
+            values[i] = (random.nextDouble() * 20 - 10) + 1e-9;
+        }
+        return values;
+    }
+
+    private static void assertSameBits(String message, double[] expected, double[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(message + ", posição " + i,
+                         Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package calcgraph.model.evaluator;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Benchmark manual (não é um teste JUnit): pontos por segundo de expressões com
+ * muita repetição, com e sem o compartilhamento de subexpressões comuns, no
+ * interpretador, na avaliação em lote e no bytecode gerado.
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.evaluator.CommonSubexpressionBenchmark
+ */
+public class CommonSubexpressionBenchmark {
+
+    private static final String[] FUNCTIONS = {
+        "sin(x)^2 + sin(x)*cos(x) + sin(x)",
+        "sqrt(abs(x)+1) * ln(sqrt(abs(x)+1)) - (abs(x)+1)^3 / sqrt(abs(x)+1)",
+        "(sin(x)+cos(x))^3 - (sin(x)+cos(x))^2 + tan(sin(x)+cos(x)) * sin(x)",
+        "mean(sin(x), cos(x), sin(x)*cos(x)) + variance(sin(x), cos(x), sin(x)*cos(x))"
+    };
+    private static final int SAMPLES = 100_000;
+
+    public static void main(String[] args) {
+        double[] xs = new double[SAMPLES];
+        double[] out = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = -10 + 20.0 * i / SAMPLES;
+        }
+
+        System.out.printf("%-36s %22s %22s %22s%n", "função", "interpretador", "lote", "bytecode");
+        for (String function : FUNCTIONS) {
+            Program raw = Program.assemble(CompiledExpression.compile(function).getPostfixTokens());
+            Program recomputed = ProgramOptimizer.optimize(raw, false);
+            Program shared = ProgramOptimizer.optimize(raw, true);
+
+            String[] columns = new String[3];
+            for (int column = 0; column < columns.length; column++) {
+                double before = measure(column, recomputed, xs, out);
+                double after = measure(column, shared, xs, out);
+                columns[column] = String.format("%6.1f -> %6.1f M/s", before / 1e6, after / 1e6);
+            }
+            System.out.printf("%-36.36s %22s %22s %22s%n", function, columns[0], columns[1], columns[2]);
+        }
+    }
+
+    private static double measure(int column, Program program, double[] xs, double[] out) {
+        switch (column) {
+            case 0: {
+                PostfixEvaluator evaluator = new PostfixEvaluator();
+                double[] variables = new double[1];
+                return pointsPerSecond(() -> {
+                    for (int i = 0; i < xs.length; i++) {
+                        variables[0] = xs[i];
+                        out[i] = evaluator.evaluate(program, variables);
+                    }
+                }, xs.length);
+            }
+            case 1: {
+                BatchEvaluator batch = new BatchEvaluator(program, 0);
+                return pointsPerSecond(() -> batch.evaluate(xs, out, 0, xs.length), xs.length);
+            }
+            default: {
+                DoubleUnaryOperator function = BytecodeCompiler.compile(program);
+                if (function == null) {
+                    return Double.NaN;
+                }
+                return pointsPerSecond(() -> {
+                    for (int i = 0; i < xs.length; i++) {
+                        out[i] = function.applyAsDouble(xs[i]);
+                    }
+                }, xs.length);
+            }
+        }
+    }
+
+    // Melhor de várias rodadas, depois do aquecimento
+    private static double pointsPerSecond(Runnable run, int samples) {
+        for (int i = 0; i < 30; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 30; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return samples / (best / 1e9);
+    }
+}
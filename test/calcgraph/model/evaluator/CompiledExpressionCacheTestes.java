@@ -0,0 +1,117 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para CompiledExpressionCache.
+ * Cobre acertos, falhas, normalização da chave e despejo LRU.
+ */
+public class CompiledExpressionCacheTestes {
+
+    @Test
+    public void testGet_SecondLookupIsHit() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(4);
+        CompiledExpression first = cache.get("2 + 3");
+        CompiledExpression second = cache.get("2 + 3");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(5.0, first.evaluate(), 0.0001);
+    }
+
+    @Test
+    public void testGet_WhitespaceIsNormalized() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(4);
+        CompiledExpression first = cache.get("x ^ 2");
+        CompiledExpression second = cache.get("x^2");
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGet_EvictsLeastRecentlyUsed() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(2);
+        CompiledExpression a = cache.get("1+1");
+        cache.get("2+2");
+        cache.get("1+1");        // "1+1" passa a ser o mais recente
+        cache.get("3+3");        // despeja "2+2"
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.get("1+1"));
+
+        long missesBefore = cache.getMisses();
+        cache.get("2+2");
+        assertEquals(missesBefore + 1, cache.getMisses());
+    }
+
+    @Test
+    public void testGet_InvalidExpressionIsNotCached() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(4);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("5 + * 3");
+                fail("Esperava ExpressionException");
+            } catch (ExpressionException e) {
+                // esperado
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testFunctionEvaluator_UsesSharedCache() {
+        CompiledExpressionCache cache = CompiledExpressionCache.shared();
+        long hitsBefore = cache.getHits();
+        new FunctionEvaluator("x*3 + 0.25");
+        FunctionEvaluator evaluator = new FunctionEvaluator("x*3+0.25");
+
+        assertEquals(hitsBefore + 1, cache.getHits());
+        assertEquals(6.25, evaluator.evaluate(2.0), 0.0001);
+    }
+
+    @Test
+    public void testGet_ConcurrentLookupsShareOneInstance() throws Exception {
+        CompiledExpressionCache cache = new CompiledExpressionCache(8);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<CompiledExpression>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> cache.get("sin(pi/2) + 1"));
+            }
+            List<Future<CompiledExpression>> results = pool.invokeAll(tasks);
+            CompiledExpression expected = cache.get("sin(pi/2)+1");
+            for (Future<CompiledExpression> result : results) {
+                assertSame(expected, result.get());
+            }
+            assertEquals(65, cache.getHits() + cache.getMisses());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGet_DifferentExpressionsAreDifferentEntries() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(4);
+        assertNotSame(cache.get("1+2"), cache.get("2+1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_RejectsNonPositiveCapacity() {
+        new CompiledExpressionCache(0);
+    }
+}
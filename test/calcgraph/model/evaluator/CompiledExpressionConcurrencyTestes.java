@@ -0,0 +1,90 @@
+package calcgraph.model.evaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Teste de estresse: uma única CompiledExpression avaliada por todas as threads ao mesmo tempo,
+ * inclusive durante a troca do interpretador pela versão em bytecode.
+ */
+public class CompiledExpressionConcurrencyTestes {
+
+    private static final String[] FUNCTIONS = {
+        "sin(x)^2 + sin(x)*cos(x) + sin(x)",
+        "median(x, 3, (-x), x^2, 1) - mode(x, 1, x, 2)",
+        "variance(x, 2*x, 3) / (abs(x) + 1) + fat(3)",
+        "sqrt(abs(x)) * ln(abs(x) + 1) - x^3"
+    };
+    private static final int POINTS = 20_000;
+
+    @Test(timeout = 60_000)
+    public void testSharedInstanceFromAllCores() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ExecutorService compiler = Executors.newSingleThreadExecutor();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (String function : FUNCTIONS) {
+                // Limiar baixo: a promoção acontece enquanto as threads avaliam
+                CompiledExpression expression = CompiledExpression.compile(function, new TieredPolicy(5_000, compiler));
+                long[] expected = expectedBits(expression.getProgram());
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int offset = t * 7919;
+                    results.add(pool.submit((Callable<Integer>) () -> {
+                        start.await();
+                        int mismatches = 0;
+                        for (int k = 0; k < POINTS; k++) {
+                            int i = (k + offset) % POINTS;
+                            if (Double.doubleToLongBits(expression.evaluate(x(i))) != expected[i]) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }));
+                }
+                start.countDown();
+                for (Future<Integer> result : results) {
+                    assertEquals(function, 0, (int) result.get());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            compiler.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testPostfixTokensAreSharedUnchanged() {
+        CompiledExpression expression = CompiledExpression.compile("mean(x, 2, 3) + sin(x)");
+        String before = expression.getPostfixTokens().toString();
+        for (int i = 0; i < 100; i++) {
+            expression.evaluate(i);
+            new FunctionEvaluator(expression).evaluate(i);
+        }
+        assertEquals(before, expression.getPostfixTokens().toString());
+    }
+
+    private static long[] expectedBits(Program program) {
+        PostfixEvaluator evaluator = new PostfixEvaluator();
+        long[] bits = new long[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            bits[i] = Double.doubleToLongBits(evaluator.evaluate(program, new double[] {x(i)}));
+        }
+        return bits;
+    }
+
+    private static double x(int i) {
+        return -50 + 100.0 * i / POINTS + 1e-3;
+    }
+}
@@ -0,0 +1,173 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+import calcgraph.model.parser.ShuntingYardAlgorithm;
+import calcgraph.model.token.Token;
+import calcgraph.model.token.TokenType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para FunctionEvaluator.
+ * Compara a avaliação por slot de variável com a substituição de x por texto nos tokens.
+ */
+public class FunctionEvaluatorTestes {
+
+    private static final String[] FUNCTIONS = {
+        "x^2 + 2*x - 1", "sin(x) * cos(x) + x/3", "sqrt(abs(x)) - ln(abs(x) + 1)",
+        "-(x - 1)^3 + e^x", "mean(x, 2*x, 3) + variance(x, 1, (-x))", "5 * pi", "floor(x) + ceil(-x) + X"
+    };
+
+    @Test
+    public void testEvaluate_BitExactWithTokenSubstitution() {
+        Random random = new Random(42);
+        for (String function : FUNCTIONS) {
+            FunctionEvaluator evaluator = new FunctionEvaluator(function);
+            List<Token> postfixTokens = postfix(function);
+            for (int i = 0; i < 500; i++) {
+                double x = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(7) - 3);
+                double expected = evaluateBySubstitution(postfixTokens, x);
+                assertEquals(function + " em x=" + x,
+                             Double.doubleToLongBits(expected), Double.doubleToLongBits(evaluator.evaluate(x)));
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluate_ConstantFunctionIgnoresX() {
+        FunctionEvaluator evaluator = new FunctionEvaluator("2 + 3");
+        assertEquals(5.0, evaluator.evaluate(123.0), 0.0);
+    }
+
+    @Test
+    public void testEvaluate_UpperCaseVariableSharesSlot() {
+        FunctionEvaluator evaluator = new FunctionEvaluator("X * x");
+        assertEquals(9.0, evaluator.evaluate(3.0), 0.0);
+    }
+
+    @Test
+    public void testEvaluateBatch_BitExactWithPointByPoint() {
+        Random random = new Random(7);
+        for (String function : FUNCTIONS) {
+            FunctionEvaluator evaluator = new FunctionEvaluator(function);
+            // Tamanho que não é múltiplo do bloco, para cobrir o bloco parcial
+            double[] xs = new double[2 * BatchEvaluator.BLOCK_SIZE + 37];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = (random.nextDouble() - 0.5) * 20;
+            }
+            double[] out = new double[xs.length];
+            evaluator.evaluate(xs, out);
+            for (int i = 0; i < xs.length; i++) {
+                assertEquals(function + " em x=" + xs[i],
+                             Double.doubleToLongBits(evaluator.evaluate(xs[i])), Double.doubleToLongBits(out[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchEvaluator_BitExactWithInterpreter() {
+        // Com a camada de bytecode ativa o FunctionEvaluator não usa o BatchEvaluator, então ele é testado direto
+        Random random = new Random(11);
+        for (String function : FUNCTIONS) {
+            Program program = CompiledExpression.compile(function).getProgram();
+            double[] xs = new double[BatchEvaluator.BLOCK_SIZE + 13];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = (random.nextDouble() - 0.5) * 20;
+            }
+            double[] out = new double[xs.length];
+            new BatchEvaluator(program, program.slotOf("x")).evaluate(xs, out, 0, xs.length);
+            PostfixEvaluator interpreter = new PostfixEvaluator();
+            for (int i = 0; i < xs.length; i++) {
+                double[] variables = new double[program.getVariableCount()];
+                if (variables.length > 0) {
+                    variables[0] = xs[i];
+                }
+                assertEquals(function + " em x=" + xs[i],
+                             Double.doubleToLongBits(interpreter.evaluate(program, variables)), Double.doubleToLongBits(out[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testInvariantStatisticsLeaveThePointLoop() {
+        StringBuilder values = new StringBuilder("1");
+        for (int i = 2; i <= 500; i++) {
+            values.append(',').append(i);
+        }
+        String function = "x*mean(" + values + ") + variance(" + values + ")";
+        Program program = CompiledExpression.compile(function).getProgram();
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 250.5\n4: MUL\n5: PUSH_CONST 20833.25\n7: ADD\n", program.toString());
+    }
+
+    @Test
+    public void testBatchEvaluator_ScalarOperandsMatchInterpreter() {
+        // Programas sem otimização: operações só entre constantes ficam no lote como escalares
+        String[] functions = {"2 - x", "2 ^ x", "x ^ 3", "(1 + 2) * x - sin(1)", "mean(x, 1 + 1, 3) / (4 - 2)",
+                              "pi / x", "5 * (2 + 3) - sqrt(x)"};
+        double[] xs = new double[300];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (i - 150) / 13.0 + 0.25;
+        }
+        PostfixEvaluator interpreter = new PostfixEvaluator();
+        for (String function : functions) {
+            Program program = Program.assemble(postfix(function));
+            double[] out = new double[xs.length];
+            new BatchEvaluator(program, 0).evaluate(xs, out, 0, xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                assertEquals(function + " em x=" + xs[i],
+                             Double.doubleToLongBits(interpreter.evaluate(program, new double[] {xs[i]})),
+                             Double.doubleToLongBits(out[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchEvaluator_InvariantErrorIsRaised() {
+        Program program = CompiledExpression.compile("x + 1/(1-1)").getProgram();
+        try {
+            new BatchEvaluator(program, 0).evaluate(new double[] {1, 2}, new double[2], 0, 2);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEvaluateBatch_SameErrorAsPointByPoint() {
+        FunctionEvaluator evaluator = new FunctionEvaluator("1 / x");
+        double[] xs = {2, 1, 0, -1};
+        double[] out = new double[xs.length];
+        try {
+            evaluator.evaluate(xs, out);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+        // Os pontos anteriores ao erro já foram preenchidos, como no laço ponto a ponto
+        assertEquals(0.5, out[0], 0.0);
+        assertEquals(1.0, out[1], 0.0);
+    }
+
+    // Avaliação antiga: troca cada variável por um token com Double.toString(x)
+    private static double evaluateBySubstitution(List<Token> postfixTokens, double x) {
+        List<Token> tokensWithX = new ArrayList<>(postfixTokens);
+        for (int i = 0; i < tokensWithX.size(); i++) {
+            if (tokensWithX.get(i).getType() == TokenType.VARIABLE) {
+                tokensWithX.set(i, new Token(TokenType.VARIABLE, Double.toString(x)) {});
+            }
+        }
+        return new PostfixEvaluator().evaluate(tokensWithX);
+    }
+
+    private static List<Token> postfix(String expression) {
+        ExpressionParser parser = new ExpressionParser();
+        List<Token> infixTokens = parser.tokenize(expression);
+        parser.validateTokenSequence(infixTokens);
+        return new ShuntingYardAlgorithm().convertToPostfix(infixTokens);
+    }
+}
@@ -0,0 +1,209 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para funções de várias variáveis com slots declarados e parâmetros.
+ * A avaliação por vetor de valores, a avaliação em lote por colunas e o interpretador
+ * devem dar o mesmo resultado, bit a bit.
+ */
+public class MultiVariableTestes {
+
+    private static final String[] VARIABLES = {"x", "y", "t"};
+    private static final String[] FUNCTIONS = {
+        "x*y + t", "sin(x) * cos(y) - t^2", "sqrt(abs(x*y)) / (t^2 + 1)", "mean(x, y, t) + variance(x, y, 2*t)",
+        "3*x - 2*Y + T", "(x + y)^2 - (x + y) * t", "x^2 + 1"
+    };
+    // Nunca promove: os testes exercitam o interpretador e a avaliação em lote
+    private static final TieredPolicy INTERPRETED = new TieredPolicy(-1, Runnable::run);
+
+    @Test
+    public void testSlotsFollowDeclarationOrder() {
+        CompiledExpression expression = CompiledExpression.compile("t*y - x", "x", "y", "t");
+        assertEquals(Arrays.asList("x", "y", "t"), expression.getVariables());
+        assertEquals(3 * 2 - 1, expression.evaluate(new double[] {1, 2, 3}), 0.0);
+        assertEquals(3 * 2 - 1, new FunctionEvaluator(expression).evaluate(new double[] {1, 2, 3}), 0.0);
+
+        // Variáveis declaradas e não usadas também têm slot
+        CompiledExpression unused = CompiledExpression.compile("y^2", "x", "y");
+        assertEquals(Arrays.asList("x", "y"), unused.getVariables());
+        assertEquals(9, unused.evaluate(new double[] {100, 3}), 0.0);
+    }
+
+    @Test
+    public void testBatchBitExactWithPointByPoint() {
+        Random random = new Random(16);
+        int n = 3000;
+        double[][] columns = new double[VARIABLES.length][n];
+        for (double[] column : columns) {
+            for (int i = 0; i < n; i++) {
+                column[i] = random.nextDouble() * 20 - 10;
+            }
+        }
+        double[] vars = new double[VARIABLES.length];
+        for (String function : FUNCTIONS) {
+            CompiledExpression expression = CompiledExpression.compile(function, INTERPRETED, VARIABLES);
+            FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+            double[] out = new double[n];
+            evaluator.evaluate(columns, out);
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < vars.length; k++) {
+                    vars[k] = columns[k][i];
+                }
+                double expected = new PostfixEvaluator().evaluate(expression.getProgram(), vars);
+                assertEquals(function + ", ponto " + i, Double.doubleToLongBits(expected), Double.doubleToLongBits(out[i]));
+                assertEquals(function + ", ponto " + i, Double.doubleToLongBits(expected),
+                             Double.doubleToLongBits(evaluator.evaluate(vars)));
+            }
+        }
+    }
+
+    @Test
+    public void testUnusedColumnMayBeNull() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("x^2 + 1", "x", "y"));
+        double[] out = new double[3];
+        evaluator.evaluate(new double[][] {{1, 2, 3}, null}, out);
+        assertEquals(10, out[2], 0.0);
+    }
+
+    @Test
+    public void testMissingValuesAreReported() {
+        CompiledExpression expression = CompiledExpression.compile("x*y", "x", "y");
+        try {
+            new FunctionEvaluator(expression).evaluate(new double[][] {{1, 2}, null}, new double[2]);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Variável 'y' sem valor definido.", e.getMessage());
+        }
+        try {
+            expression.evaluate(new double[] {1});
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Variável 'y' sem valor definido.", e.getMessage());
+        }
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testSingleXFormRejectsOtherVariables() {
+        new FunctionEvaluator(CompiledExpression.compile("x*y", "x", "y")).evaluate(2.0);
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testUndeclaredNameIsNotAVariable() {
+        // Sem declaração, y é lido como uma função sem parênteses
+        CompiledExpression.compile("x*y");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstantNameCannotBeDeclared() {
+        CompiledExpression.compile("x*pi", "x", "pi");
+    }
+
+    @Test
+    public void testSingleVariableIsPromoted() {
+        // Uma única variável declarada, mesmo que não se chame x, vai para o bytecode
+        CompiledExpression expression = CompiledExpression.compile("t^2 - t", new TieredPolicy(0, Runnable::run), "t");
+        assertEquals(12, expression.evaluate(new double[] {4}), 0.0);
+        if (BytecodeCompiler.isAvailable()) {
+            assertEquals(CompiledExpression.Tier.COMPILED, expression.getTier());
+        }
+        assertEquals(12, new FunctionEvaluator(expression).evaluate(new double[] {4}), 0.0);
+    }
+
+    @Test
+    public void testEvaluateVarsAllocatesNoObjects() {
+        // Conta os bytes alocados pela thread (HotSpot); sem esse suporte o teste é ignorado.
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        FunctionEvaluator evaluator = new FunctionEvaluator(
+                CompiledExpression.compile("mean(x, y, t) * sin(x) ^ 2 + y*t - median(4, x, t)", INTERPRETED, VARIABLES));
+        double[] vars = new double[3];
+        double sum = 0;
+        long allocated = -1;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100000; i++) {
+                vars[0] = i % 7;
+                vars[1] = i % 5;
+                vars[2] = i % 3;
+                sum += evaluator.evaluate(vars);
+            }
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+
+        assertEquals("bytes alocados em 100000 avaliações (soma " + sum + ")", 0, allocated);
+    }
+
+    // --- Parâmetros ---
+
+    @Test
+    public void testParametersMatchLiteralCoefficients() {
+        CompiledExpression expression = CompiledExpression.compile("a*x^2 + b*x + c", "x", "a", "b", "c");
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+        assertEquals(Arrays.asList("a", "b", "c"), evaluator.getParameters());
+        Program program = expression.getProgram();
+        double[] xs = new double[1921];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = FunctionEvaluator.sampleX(-10, 10, xs.length, i);
+        }
+        double[] out = new double[xs.length];
+        Random random = new Random(17);
+        for (int frame = 0; frame < 20; frame++) {
+            double a = random.nextDouble() * 20 - 10;
+            double b = random.nextDouble() * 20 - 10;
+            double c = random.nextDouble() * 20 - 10;
+            evaluator.setParameter("a", a);
+            evaluator.setParameter("b", b);
+            evaluator.setParameter("c", c);
+            evaluator.evaluate(xs, out);
+            // Mesmo resultado que recompilar a expressão com os coeficientes no texto
+            FunctionEvaluator literal = new FunctionEvaluator(CompiledExpression.compile(
+                    "(" + a + ")*x^2 + (" + b + ")*x + (" + c + ")", INTERPRETED));
+            for (int i = 0; i < xs.length; i += 7) {
+                long expected = Double.doubleToLongBits(literal.evaluate(xs[i]));
+                assertEquals("quadro " + frame + ", ponto " + i, expected, Double.doubleToLongBits(out[i]));
+                assertEquals("quadro " + frame + ", ponto " + i, expected, Double.doubleToLongBits(evaluator.evaluate(xs[i])));
+            }
+        }
+        // Trocar parâmetros não recompila nada
+        assertEquals(program, expression.getProgram());
+    }
+
+    @Test
+    public void testParameterErrorsAreReported() {
+        FunctionEvaluator evaluator = new FunctionEvaluator(CompiledExpression.compile("x / a + b", "x", "a", "b"));
+        evaluator.setParameter("a", 2);
+        try {
+            evaluator.evaluate(1.0);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Variável 'b' sem valor definido.", e.getMessage());
+        }
+        evaluator.setParameter("b", 1);
+        assertEquals(1.5, evaluator.evaluate(1.0), 0.0);
+        evaluator.setParameter("a", 0);
+        try {
+            evaluator.evaluate(new double[] {1, 2}, new double[2]);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+        try {
+            evaluator.setParameter("x", 1);
+            fail("Esperava IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // x não é parâmetro
+        }
+    }
+}
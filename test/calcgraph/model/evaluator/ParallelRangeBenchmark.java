@@ -0,0 +1,57 @@
+package calcgraph.model.evaluator;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark manual (não é um teste JUnit): escalabilidade do {@link ParallelRangeEvaluator}
+ * com 1, 2, 4, 8 e 16 threads sobre 10M amostras.
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.evaluator.ParallelRangeBenchmark
+ */
+public class ParallelRangeBenchmark {
+
+    private static final String[] FUNCTIONS = {
+        "x^2 + 2*x - 1",
+        "sin(x) * cos(x) + sqrt(abs(x))",
+        "mean(x, 2*x, 3) + variance(x, 1, (-x))"
+    };
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final int SAMPLES = 10_000_000;
+
+    public static void main(String[] args) {
+        System.out.println("Processadores disponíveis: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-40s %8s %14s %8s%n", "função", "threads", "amostras/s", "ganho");
+        double[] out = new double[SAMPLES];
+        for (String function : FUNCTIONS) {
+            CompiledExpression expression = CompiledExpression.compile(function);
+            double base = 0;
+            for (int threads : THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    ParallelRangeEvaluator evaluator = new ParallelRangeEvaluator(pool);
+                    double rate = pointsPerSecond(() -> evaluator.evaluate(expression, -100, 100, SAMPLES, out));
+                    if (threads == 1) {
+                        base = rate;
+                    }
+                    System.out.printf("%-40s %8d %10.1f M/s %7.2fx%n", function, threads, rate / 1e6, rate / base);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    // Melhor de cinco rodadas, depois de três de aquecimento
+    private static double pointsPerSecond(Runnable run) {
+        for (int i = 0; i < 3; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return SAMPLES / (best / 1e9);
+    }
+}
@@ -0,0 +1,77 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para ParallelRangeEvaluator.
+ * A avaliação paralela deve ser idêntica, bit a bit, à sequencial para qualquer quantidade de threads.
+ */
+public class ParallelRangeEvaluatorTestes {
+
+    private static final String[] FUNCTIONS = {
+        "x^2 + 2*x - 1", "sin(x) * cos(x) + sqrt(abs(x))", "mean(x, 2*x, 3) - median(x, 1, (-x))"
+    };
+    private static final int[] SAMPLES = {0, 1, 2, 5_000, 100_003};
+    private static final int[] THREADS = {1, 2, 4, 7};
+
+    @Test
+    public void testIdenticalToSequentialRange() {
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelRangeEvaluator parallel = new ParallelRangeEvaluator(pool);
+                for (String function : FUNCTIONS) {
+                    CompiledExpression expression = CompiledExpression.compile(function);
+                    for (int samples : SAMPLES) {
+                        double[] expected = new double[samples];
+                        new FunctionEvaluator(expression).evaluateRange(-7.5, 12.25, samples, expected, 0, samples);
+                        double[] actual = parallel.evaluate(expression, -7.5, 12.25, samples);
+                        for (int i = 0; i < samples; i++) {
+                            assertEquals(function + " com " + threads + " threads, amostra " + i,
+                                         Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]));
+                        }
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testRangeMatchesPointByPoint() {
+        CompiledExpression expression = CompiledExpression.compile("x^3 - x");
+        double[] out = new ParallelRangeEvaluator().evaluate(expression, -1, 1, 2001);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+        for (int i = 0; i < out.length; i++) {
+            double x = FunctionEvaluator.sampleX(-1, 1, 2001, i);
+            assertEquals(evaluator.evaluate(x), out[i], 0.0);
+        }
+        assertEquals(-1.0, FunctionEvaluator.sampleX(-1, 1, 2001, 0), 0.0);
+        assertEquals(1.0, FunctionEvaluator.sampleX(-1, 1, 2001, 2000), 0.0);
+    }
+
+    @Test
+    public void testReportsErrorOfLowestIndex() {
+        // Divisão por zero em x = -1 (amostra 200000) e fatorial negativo a partir de x = 2 (amostra 500000)
+        CompiledExpression expression = CompiledExpression.compile("1/(x+1) + fat(1 - floor(x))");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelRangeEvaluator(pool).evaluate(expression, -3, 3, 600_001);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsShortOutput() {
+        new ParallelRangeEvaluator().evaluate(CompiledExpression.compile("x"), 0, 1, 10, new double[5]);
+    }
+}
@@ -1,13 +1,17 @@
 package calcgraph.model.evaluator;
 
 import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+import calcgraph.model.parser.ShuntingYardAlgorithm;
 import calcgraph.model.token.FunctionToken;
 import calcgraph.model.token.NumberToken;
 import calcgraph.model.token.OperatorToken;
 import calcgraph.model.token.Token;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.junit.Assume;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 
@@ -146,4 +150,123 @@ public class PostfixEvaluatorTestes {
         List<Token> postfixTokens = Arrays.asList(new NumberToken("5"), new OperatorToken("+"));
         evaluator.evaluate(postfixTokens);
     }
-}
\ No newline at end of file
+
+    // Testes para a avaliação de programas compilados
+    @Test
+    public void testEvaluateProgram_MatchesTokenEvaluation() {
+        String[] expressions = {
+            "1 + 2 * 3", "2 ^ 3 ^ 2", "-(4 - 6) * sqrt(16)", "fat(4) - 3!", "log(1000) + ln(e)",
+            "mean(1, 2, 3, 4)", "median(5, 1, 3)", "variance(2, 4, 4, 4, 5, 5, 7, 9)", "pg(2, 5, 3)"
+        };
+        for (String expression : expressions) {
+            List<Token> postfixTokens = postfix(expression);
+            double expected = evaluator.evaluate(postfixTokens);
+            double actual = evaluator.evaluate(Program.assemble(postfixTokens));
+            assertEquals(expression, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+        }
+    }
+
+    @Test
+    public void testEvaluateProgram_WithVariable() {
+        Program program = Program.assemble(postfix("x ^ 2 - 2 * x"));
+        assertEquals(8.0, evaluator.evaluate(program, new double[] {4.0}), 0.0001);
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testEvaluateProgram_DivisionByZero() {
+        evaluator.evaluate(Program.assemble(postfix("1 / (2 - 2)")));
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testEvaluateProgram_MissingVariable() {
+        evaluator.evaluate(Program.assemble(postfix("x + 1")));
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testAssemble_InsufficientOperands() {
+        Program.assemble(Arrays.asList(new NumberToken("5"), new OperatorToken("+")));
+    }
+
+    @Test
+    public void testEvaluateProgram_AllocatesNoObjects() {
+        // Conta os bytes alocados pela thread (HotSpot); sem esse suporte o teste é ignorado.
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        Program program = Program.assemble(postfix("mean(x, 2, 3) * sin(x) ^ 2 + mode(1, x, x) - median(4, x, 1) + 3!"));
+        PostfixEvaluator reused = new PostfixEvaluator();
+        double[] variables = new double[1];
+        double sum = 0;
+        // As primeiras rodadas podem incluir as transições do JIT; em regime a avaliação não aloca nada
+        long allocated = -1;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100000; i++) {
+                variables[0] = i % 7;
+                sum += reused.evaluate(program, variables);
+            }
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+
+        assertEquals("bytes alocados em 100000 avaliações (soma " + sum + ")", 0, allocated);
+    }
+
+    @Test
+    public void testEvaluateProgram_StatisticsReadStackSlice() {
+        // Estatísticas aninhadas: cada uma lê sua fatia da mesma pilha
+        Program program = Program.assemble(postfix("mean(mode(1, 4, 4, 6, 3), median(9, 1, 5), 2)"));
+        assertEquals((4.0 + 5.0 + 2.0) / 3, evaluator.evaluate(program), 0.0);
+    }
+
+    @Test
+    public void testExecute_SingleVariableWithoutVariablesArray() {
+        // x direto no lugar do vetor de variáveis dá o mesmo resultado, bit a bit
+        Program program = Program.assemble(postfix("x^2 - 3*x + sin(x) * x"));
+        double[] stack = new double[program.getMaxStackDepth()];
+        double[] temps = new double[program.tempCount];
+        for (double x = -5; x <= 5; x += 0.25) {
+            double expected = evaluator.evaluate(program, new double[] {x});
+            assertEquals(Double.doubleToLongBits(expected),
+                         Double.doubleToLongBits(PostfixEvaluator.execute(program, null, x, stack, temps)));
+        }
+    }
+
+    @Test
+    public void testMode_TieGoesToSmallestValue() {
+        // Empate de frequência: vence o menor valor, qualquer que seja a ordem dos argumentos
+        assertEquals(2.0, evaluator.evaluate(Program.assemble(postfix("mode(7, 2, 7, 2, 5)"))), 0.0);
+        assertEquals(2.0, evaluator.evaluate(Program.assemble(postfix("mode(2, 7, 2, 7, 5)"))), 0.0);
+        assertEquals(3.0, evaluator.evaluate(postfix("mode(10, 3, 10, 3, 5)")), 0.0);
+        assertEquals(-3.0, PostfixEvaluator.applyStatistic(Opcode.MODE, new double[] {5, 10, -3, 10, -3}), 0.0);
+    }
+
+    @Test
+    public void testMode_HigherFrequencyWinsOverSmallerValue() {
+        assertEquals(9.0, evaluator.evaluate(Program.assemble(postfix("mode(1, 9, 1, 9, 9)"))), 0.0);
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testMode_AllDistinct() {
+        evaluator.evaluate(Program.assemble(postfix("mode(3, 1, 2)")));
+    }
+
+    @Test
+    public void testMode_BatchFollowsSameRule() {
+        FunctionEvaluator batch = new FunctionEvaluator("mode(x, 4, x, 4, 8)");
+        double[] out = new double[3];
+        batch.evaluate(new double[] {1, 6, 4}, out);
+        assertEquals(1.0, out[0], 0.0);
+        assertEquals(4.0, out[1], 0.0);
+        assertEquals(4.0, out[2], 0.0);
+    }
+
+    private static List<Token> postfix(String expression) {
+        ExpressionParser parser = new ExpressionParser();
+        List<Token> infixTokens = parser.tokenize(expression);
+        parser.validateTokenSequence(infixTokens);
+        return new ShuntingYardAlgorithm().convertToPostfix(infixTokens);
+    }
+}
@@ -0,0 +1,205 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Classe de testes para ProgramOptimizer.
+ * Confere as simplificações pela listagem do programa e a equivalência bit a bit com o programa original.
+ */
+public class ProgramOptimizerTestes {
+
+    private static final String[] FUNCTIONS = {"sin", "cos", "tan", "log", "ln", "sqrt", "abs", "ceil", "floor"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^"};
+    private static final double[] POINTS = {0.0, -0.0, 1.0, -1.0, 0.5, 2.0, -3.75, 1e-300, -1e300,
+                                            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    @Test
+    public void testFoldsConstantSubexpressions() {
+        assertEquals("0: PUSH_CONST " + (2 * Math.PI) + "\n" +
+                     "2: LOAD_VAR x\n" +
+                     "4: MUL\n" +
+                     "5: PUSH_CONST 4.0\n" +
+                     "7: ADD\n",
+                     optimized("2*pi*x + sqrt(16)").toString());
+    }
+
+    @Test
+    public void testFoldsStatisticsOfConstants() {
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 2.0\n4: MUL\n", optimized("x * mean(1, 2, 3)").toString());
+    }
+
+    @Test
+    public void testSquareBecomesMultiplication() {
+        assertEquals("0: LOAD_VAR x\n2: SQUARE\n", optimized("x^2").toString());
+        assertEquals("0: LOAD_VAR x\n2: SIN\n3: SQUARE\n", optimized("sin(x)^(1+1)").toString());
+    }
+
+    @Test
+    public void testHigherPowersAreKept() {
+        // x*x*x arredonda duas vezes e nem sempre coincide com Math.pow(x, 3)
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 3.0\n4: POW\n", optimized("x^3").toString());
+    }
+
+    @Test
+    public void testDropsIdentities() {
+        assertEquals("0: LOAD_VAR x\n", optimized("1 * x * 1 / 1 ^ 1").toString());
+        assertEquals("0: LOAD_VAR x\n", optimized("x^1 - 0").toString());
+        assertEquals("0: LOAD_VAR x\n2: ABS\n", optimized("abs(x) + 0").toString());
+    }
+
+    @Test
+    public void testKeepsPlusZeroWhenOperandMayBeNegativeZero() {
+        // -0.0 + 0.0 resulta em +0.0, então "x + 0" não é igual a "x"
+        Program program = optimized("x + 0");
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 0.0\n4: ADD\n", program.toString());
+        assertEquals(Double.doubleToLongBits(0.0),
+                     Double.doubleToLongBits(new PostfixEvaluator().evaluate(program, new double[] {-0.0})));
+    }
+
+    @Test
+    public void testDivisionByZeroStillFailsAtEvaluation() {
+        // "1/0" literal já é recusado pela validação; "1/(1-1)" só falha ao ser calculado
+        CompiledExpression expression = CompiledExpression.compile("x + 1/(1-1)");
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 1.0\n4: PUSH_CONST 0.0\n6: DIV\n7: ADD\n",
+                     expression.getProgram().toString());
+        try {
+            new FunctionEvaluator(expression).evaluate(1.0);
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Divisão por zero.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testVariableSlotsArePreserved() {
+        Program program = optimized("0 * x + 5");
+        assertEquals(1, program.getVariableCount());
+        assertEquals(0, program.slotOf("x"));
+    }
+
+    @Test
+    public void testSharedSubexpressionIsComputedOnce() {
+        assertEquals("0: LOAD_VAR x\n2: SIN\n3: STORE_TEMP t0\n5: SQUARE\n" +
+                     "6: LOAD_TEMP t0\n8: LOAD_VAR x\n10: COS\n11: MUL\n12: ADD\n" +
+                     "13: LOAD_TEMP t0\n15: ADD\n",
+                     optimized("sin(x)^2 + sin(x)*cos(x) + sin(x)").toString());
+    }
+
+    @Test
+    public void testProductOfEqualSubexpressionsBecomesSquare() {
+        assertEquals("0: LOAD_VAR x\n2: PUSH_CONST 1.0\n4: ADD\n5: STORE_TEMP t0\n7: SQUARE\n" +
+                     "8: LOAD_TEMP t0\n10: PUSH_CONST 2.0\n12: MEAN 2\n14: SUB\n",
+                     optimized("(x+1)*(x+1) - mean(x+1, 2)").toString());
+    }
+
+    @Test
+    public void testWithoutSharingSubexpressionsAreRecomputed() {
+        Program program = ProgramOptimizer.optimize(
+                Program.assemble(CompiledExpression.compile("sin(x) + sin(x)").getPostfixTokens()), false);
+        assertEquals("0: LOAD_VAR x\n2: SIN\n3: LOAD_VAR x\n5: SIN\n6: ADD\n", program.toString());
+    }
+
+    @Test
+    public void testSharedSubexpressionsInEveryTier() {
+        CompiledExpression expression = CompiledExpression.compile(
+                "sqrt(abs(x)+1) * ln(sqrt(abs(x)+1)) - (abs(x)+1)^3 / sqrt(abs(x)+1)");
+        Program original = Program.assemble(expression.getPostfixTokens());
+        double[] xs = new double[BatchEvaluator.BLOCK_SIZE + 5];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (i - 500) / 37.0;
+        }
+        double[] batch = new double[xs.length];
+        new BatchEvaluator(expression.getProgram(), 0).evaluate(xs, batch, 0, xs.length);
+        DoubleUnaryOperator compiled = BytecodeCompiler.compile(expression.getProgram());
+        PostfixEvaluator evaluator = new PostfixEvaluator();
+        for (int i = 0; i < xs.length; i++) {
+            long expected = Double.doubleToLongBits(evaluator.evaluate(original, new double[] {xs[i]}));
+            assertEquals(expected, Double.doubleToLongBits(evaluator.evaluate(expression.getProgram(), new double[] {xs[i]})));
+            assertEquals(expected, Double.doubleToLongBits(batch[i]));
+            if (compiled != null) {
+                assertEquals(expected, Double.doubleToLongBits(compiled.applyAsDouble(xs[i])));
+            }
+        }
+    }
+
+    @Test
+    public void testOptimizedProgramIsBitExact() {
+        Random random = new Random(99);
+        PostfixEvaluator evaluator = new PostfixEvaluator();
+        for (int i = 0; i < 3000; i++) {
+            String expression = i % 2 == 0 ? randomExpression(random, 4) : repetitiveExpression(random);
+            CompiledExpression compiled;
+            try {
+                compiled = CompiledExpression.compile(expression);
+            } catch (ExpressionException e) {
+                continue; // divisão literal por zero, recusada pela validação
+            }
+            Program original = Program.assemble(compiled.getPostfixTokens());
+            Program optimized = compiled.getProgram();
+            for (double x : POINTS) {
+                double[] variables = new double[original.getVariableCount()];
+                if (variables.length > 0) {
+                    variables[0] = x;
+                }
+                assertEquals(expression + " em x=" + x, outcome(evaluator, original, variables),
+                             outcome(evaluator, optimized, variables));
+            }
+        }
+    }
+
+    private static Program optimized(String expression) {
+        return CompiledExpression.compile(expression).getProgram();
+    }
+
+    private static Object outcome(PostfixEvaluator evaluator, Program program, double[] variables) {
+        try {
+            return Double.doubleToLongBits(evaluator.evaluate(program, variables));
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    // Combina poucas subexpressões sorteadas várias vezes, para exercitar os temporários
+    private static String repetitiveExpression(Random random) {
+        String[] parts = {randomExpression(random, 2), randomExpression(random, 2), "x"};
+        String expression = parts[random.nextInt(parts.length)];
+        for (int i = 0; i < 6; i++) {
+            String part = parts[random.nextInt(parts.length)];
+            switch (random.nextInt(3)) {
+                case 0:
+                    expression = "(" + expression + " " + OPERATORS[random.nextInt(OPERATORS.length)] + " " + part + ")";
+                    break;
+                case 1:
+                    expression = FUNCTIONS[random.nextInt(FUNCTIONS.length)] + "(" + expression + ")";
+                    break;
+                default:
+                    parts[random.nextInt(parts.length)] = expression;
+                    break;
+            }
+        }
+        return expression;
+    }
+
+    // Expressões entre parênteses, com muitas constantes, uns e zeros para exercitar as regras
+    private static String randomExpression(Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(4) : random.nextInt(9);
+        switch (choice) {
+            case 0: return Integer.toString(random.nextInt(3));
+            case 1: return random.nextInt(40) / 8.0 + "";
+            case 2: return "x";
+            case 3: return random.nextBoolean() ? "pi" : "e";
+            case 4: return "(-" + randomExpression(random, depth - 1) + ")";
+            case 5: return "(" + random.nextInt(5) + "!)";
+            case 6: return FUNCTIONS[random.nextInt(FUNCTIONS.length)] + "(" + randomExpression(random, depth - 1) + ")";
+            case 7: return "mean(" + randomExpression(random, depth - 1) + ", " + randomExpression(random, depth - 1) + ")";
+            default:
+                return "(" + randomExpression(random, depth - 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)]
+                       + " " + randomExpression(random, depth - 1) + ")";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.exception.ExpressionException;
+import calcgraph.model.parser.ExpressionParser;
+import calcgraph.model.parser.ShuntingYardAlgorithm;
+import calcgraph.model.token.*;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Classe de testes para Program.
+ * Cobre a montagem do programa a partir dos tokens pós-fixados do ShuntingYardAlgorithm.
+ */
+public class ProgramTestes {
+
+    private final ShuntingYardAlgorithm algorithm = new ShuntingYardAlgorithm();
+
+    private Program assemble(List<Token> infixTokens) {
+        return Program.assemble(algorithm.convertToPostfix(infixTokens));
+    }
+
+    @Test
+    public void testAssemble_NumbersArePreParsed() {
+        // Testa "2 * x + 1.5": números vão para o pool de constantes e x para o slot 0.
+        Program program = assemble(new ExpressionParser().tokenize("2 * x + 1.5"));
+
+        assertEquals("0: PUSH_CONST 2.0\n2: LOAD_VAR x\n4: MUL\n5: PUSH_CONST 1.5\n7: ADD\n", program.toString());
+        assertEquals(2, program.getMaxStackDepth());
+        assertEquals(0, program.slotOf("x"));
+    }
+
+    @Test
+    public void testAssemble_StatisticKeepsArity() {
+        Program program = assemble(new ExpressionParser().tokenize("mean(1, 2, 3)"));
+
+        assertEquals("0: PUSH_CONST 1.0\n2: PUSH_CONST 2.0\n4: PUSH_CONST 3.0\n6: MEAN 3\n", program.toString());
+        assertEquals(3, program.getMaxStackDepth());
+    }
+
+    @Test
+    public void testAssemble_UnknownFunction() {
+        List<Token> infixTokens = Arrays.asList(
+            new FunctionToken("abc"), new ParenthesisToken("("), new NumberToken("1"), new ParenthesisToken(")")
+        );
+
+        assertThrows(ExpressionException.class, () -> {
+            assemble(infixTokens);
+        });
+    }
+}
@@ -0,0 +1,142 @@
+package calcgraph.model.evaluator;
+
+import calcgraph.model.evaluator.CompiledExpression.Tier;
+import calcgraph.model.exception.ExpressionException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Classe de testes para TieredPolicy.
+ * Usa executores controlados pelo teste para observar cada troca de camada.
+ */
+public class TieredPolicyTestes {
+
+    @Test
+    public void testOneOffExpressionStaysInterpreted() {
+        TieredPolicy policy = new TieredPolicy(100, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile("2+2", policy);
+
+        assertEquals(4.0, expression.evaluate(), 0.0);
+        assertEquals(Tier.INTERPRETED, expression.getTier());
+        assertEquals(1, expression.getInvocationCount());
+        assertEquals(1, expression.getPointCount());
+        assertEquals(0, policy.getPromotions());
+    }
+
+    @Test
+    public void testPromotesAfterThreshold() {
+        assumeTrue(BytecodeCompiler.isAvailable());
+        TieredPolicy policy = new TieredPolicy(1000, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile("x^2 - 3*x", policy);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+
+        double[] xs = new double[600];
+        double[] out = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i / 7.0;
+        }
+        evaluator.evaluate(xs, out);
+        assertEquals(Tier.INTERPRETED, expression.getTier());
+        double[] interpreted = out.clone();
+
+        evaluator.evaluate(xs, out);
+        assertEquals(Tier.COMPILED, expression.getTier());
+        assertNotNull(expression.getCompiledFunction());
+        assertEquals(2, expression.getInvocationCount());
+        assertEquals(1200, expression.getPointCount());
+        assertEquals(1, policy.getPromotions());
+        assertEquals(1, policy.getCompilations());
+
+        // A troca não muda nenhum resultado
+        evaluator.evaluate(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(Double.doubleToLongBits(interpreted[i]), Double.doubleToLongBits(out[i]));
+        }
+    }
+
+    @Test
+    public void testPointByPointEvaluationCountsTowardsPromotion() {
+        assumeTrue(BytecodeCompiler.isAvailable());
+        TieredPolicy policy = new TieredPolicy(1000, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile("sin(x) + x", policy);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(Math.sin(i) + i, evaluator.evaluate(i), 0.0);
+        }
+        assertEquals(Tier.COMPILED, expression.getTier());
+    }
+
+    @Test
+    public void testEvaluationContinuesWhilePromoting() {
+        assumeTrue(BytecodeCompiler.isAvailable());
+        List<Runnable> queued = new ArrayList<>();
+        TieredPolicy policy = new TieredPolicy(0, queued::add);
+        CompiledExpression expression = CompiledExpression.compile("x + 1", policy);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+        double[] out = new double[1];
+
+        evaluator.evaluate(new double[] {1.0}, out);
+        assertEquals(Tier.PROMOTING, expression.getTier());
+        assertEquals(2.0, out[0], 0.0);
+
+        // Novas avaliações não agendam outra promoção
+        evaluator.evaluate(new double[] {2.0}, out);
+        assertEquals(3.0, out[0], 0.0);
+        assertEquals(1, queued.size());
+
+        queued.get(0).run();
+        assertEquals(Tier.COMPILED, expression.getTier());
+        evaluator.evaluate(new double[] {3.0}, out);
+        assertEquals(4.0, out[0], 0.0);
+    }
+
+    @Test
+    public void testNegativeThresholdNeverPromotes() {
+        TieredPolicy policy = new TieredPolicy(-1, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile("x * 2", policy);
+        FunctionEvaluator evaluator = new FunctionEvaluator(expression);
+
+        evaluator.evaluate(new double[10_000], new double[10_000]);
+        assertEquals(Tier.INTERPRETED, expression.getTier());
+        assertNull(expression.getCompiledFunction());
+    }
+
+    @Test
+    public void testUncompilableExpressionIsCountedAsFailure() {
+        StringBuilder text = new StringBuilder("x");
+        for (int i = 0; i < 3000; i++) {
+            text.append(" + ").append(i).append(".5");
+        }
+        TieredPolicy policy = new TieredPolicy(0, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile(text.toString(), policy);
+
+        double[] out = new double[1];
+        new FunctionEvaluator(expression).evaluate(new double[] {1.0}, out);
+        assertEquals(Tier.UNCOMPILABLE, expression.getTier());
+        assertEquals(1, policy.getFailures());
+        assertEquals(new PostfixEvaluator().evaluate(expression.getProgram(), new double[] {1.0}), out[0], 0.0);
+    }
+
+    @Test
+    public void testEvaluateWithoutValueFailsInEveryTier() {
+        assumeTrue(BytecodeCompiler.isAvailable());
+        TieredPolicy policy = new TieredPolicy(0, Runnable::run);
+        CompiledExpression expression = CompiledExpression.compile("x+1", policy);
+        assertEquals(3.0, expression.evaluate(2), 0.0);
+        assertEquals(Tier.COMPILED, expression.getTier());
+
+        try {
+            expression.evaluate();
+            fail("Esperava ExpressionException");
+        } catch (ExpressionException e) {
+            assertEquals("Variável 'x' sem valor definido.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package calcgraph.model.evaluator;
+
+/**
+ * Benchmark manual (não é um teste JUnit): pontos por segundo da avaliação em lote
+ * com os laços escalares e com os laços da Vector API.
+ *
+ * Execução (Java 16+, com src-simd compilado):
+ * java --add-modules jdk.incubator.vector -cp build/classes:build/test/classes calcgraph.model.evaluator.VectorKernelsBenchmark
+ */
+public class VectorKernelsBenchmark {
+
+    private static final String[] FUNCTIONS = {
+        "x^2 + 2*x - 1",
+        "3*x*x - 2*x + abs(x)/4",
+        "sqrt(abs(x)) * (x - 1) / (x^2 + 1)",
+        "sin(x) * cos(x) + sqrt(abs(x))"
+    };
+    private static final int SAMPLES = 100_000;
+
+    public static void main(String[] args) {
+        ColumnKernels vector = ColumnKernels.vector();
+        if (vector == null) {
+            System.out.println("Vector API indisponível: rode com --add-modules jdk.incubator.vector"
+                               + " e com as classes de src-simd no classpath.");
+            return;
+        }
+        double[] xs = new double[SAMPLES];
+        double[] out = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = -10 + 20.0 * i / SAMPLES + 1e-3;
+        }
+
+        ColumnKernels scalar = ColumnKernels.scalar();
+        System.out.printf("%-36s %14s %14s %8s%n", "função", scalar.name(), "vetorial", "ganho");
+        for (String function : FUNCTIONS) {
+            Program program = CompiledExpression.compile(function).getProgram();
+            BatchEvaluator scalarBatch = new BatchEvaluator(program, 0, scalar);
+            BatchEvaluator vectorBatch = new BatchEvaluator(program, 0, vector);
+            double before = pointsPerSecond(() -> scalarBatch.evaluate(xs, out, 0, SAMPLES));
+            double after = pointsPerSecond(() -> vectorBatch.evaluate(xs, out, 0, SAMPLES));
+            System.out.printf("%-36.36s %10.1f M/s %10.1f M/s %7.2fx%n", function, before / 1e6, after / 1e6, after / before);
+        }
+        System.out.println("Laços vetoriais: " + vector.name());
+    }
+
+    // Melhor de várias rodadas, depois do aquecimento
+    private static double pointsPerSecond(Runnable run) {
+        for (int i = 0; i < 50; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 30; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return SAMPLES / (best / 1e9);
+    }
+}
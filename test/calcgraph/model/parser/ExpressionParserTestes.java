@@ -164,6 +164,87 @@ public class ExpressionParserTestes {
         assertEquals(")", tokens.get(4).getValue());
     }
 
+    @Test
+    public void testTokenize_UnaryMinusBeforeParenthesis_WrapsWholeGroup() {
+        // "-(3+4)" deve virar "(0-(3+4))"
+        List<Token> tokens = parser.tokenize("-(3+4)");
+        assertEquals("[(, 0, -, (, 3, +, 4, ), )]", values(tokens));
+    }
+
+    @Test
+    public void testTokenize_UnaryMinusBeforeFunction_WrapsCall() {
+        List<Token> tokens = parser.tokenize("2*-sin(x)");
+        assertEquals("[2, *, (, 0, -, sin, (, x, ), )]", values(tokens));
+    }
+
+    @Test
+    public void testTokenize_NestedUnaryMinus() {
+        List<Token> tokens = parser.tokenize("-(-(-(-x)))");
+        assertEquals("[(, 0, -, (, (, 0, -, (, (, 0, -, (, (, 0, -, x, ), ), ), ), ), ), )]", values(tokens));
+        parser.validateTokenSequence(tokens);
+    }
+
+    @Test
+    public void testTokenize_DoubleUnaryMinus() {
+        List<Token> tokens = parser.tokenize("--5");
+        assertEquals("[(, 0, -, (, 0, -, 5, ), )]", values(tokens));
+    }
+
+    @Test(expected = ExpressionException.class)
+    public void testTokenize_UnaryMinusWithoutOperand() {
+        List<Token> tokens = parser.tokenize("5*-");
+        parser.validateTokenSequence(tokens);
+    }
+
+    @Test(timeout = 10000)
+    public void testTokenize_UnaryMinus_LargeInput() {
+        // Cada "*-1" vira "*", "(", "0", "-", "1", ")"; o tempo por token é medido no TokenizerBenchmark
+        int terms = 100000 / 7;
+        List<Token> negated = parser.tokenize(negatedTerms(100000));
+        assertEquals(1 + 6 * terms, negated.size());
+        parser.validateTokenSequence(negated);
+
+        // Cada "-(" vira "(", "0", "-", "(" e fecha com dois ")"
+        int depth = 100000 / 8;
+        List<Token> nested = parser.tokenize(nestedNegation(100000));
+        assertEquals(1 + 6 * depth, nested.size());
+        parser.validateTokenSequence(nested);
+    }
+
+    // "1*-1*-1*-1..." : um sinal unário a cada termo
+    private static String negatedTerms(int tokens) {
+        StringBuilder sb = new StringBuilder("1");
+        for (int i = 0; i < tokens / 7; i++) {
+            sb.append("*-1");
+        }
+        return sb.toString();
+    }
+
+    // "-(-(-(...x...)))" : sinais unários aninhados
+    private static String nestedNegation(int tokens) {
+        int depth = tokens / 8;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("-(");
+        }
+        sb.append('x');
+        for (int i = 0; i < depth; i++) {
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    private static String values(List<Token> tokens) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(tokens.get(i).getValue());
+        }
+        return sb.append(']').toString();
+    }
+
     @Test(expected = ExpressionException.class)
     public void testTokenize_InvalidCharacters() {
         parser.tokenize("2 * @x - 5");
@@ -256,4 +337,36 @@ public class ExpressionParserTestes {
         List<Token> tokens = asList(new FunctionToken("sin"), new Token(TokenType.SEPARATOR, ",") {}, new NumberToken("5"));
         parser.validateTokenSequence(tokens);
     }
-}
\ No newline at end of file
+
+    // --- Variáveis declaradas ---
+
+    @Test
+    public void testTokenize_DeclaredVariables() {
+        List<Token> tokens = new ExpressionParser("x", "y", "Time").tokenize("X*y + TIME");
+        assertEquals(TokenType.VARIABLE, tokens.get(0).getType());
+        assertEquals("x", tokens.get(0).getValue());
+        assertEquals(TokenType.VARIABLE, tokens.get(2).getType());
+        assertEquals("y", tokens.get(2).getValue());
+        assertEquals(TokenType.VARIABLE, tokens.get(4).getType());
+        assertEquals("time", tokens.get(4).getValue());
+    }
+
+    @Test
+    public void testTokenize_UndeclaredWordIsFunction() {
+        List<Token> tokens = new ExpressionParser("y").tokenize("y * x");
+        assertEquals(TokenType.VARIABLE, tokens.get(0).getType());
+        assertEquals(TokenType.FUNCTION, tokens.get(2).getType());
+        // Sem declaração, só x é variável
+        assertEquals(TokenType.FUNCTION, parser.tokenize("y").get(0).getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeclaredVariables_InvalidName() {
+        new ExpressionParser("x1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeclaredVariables_Repeated() {
+        new ExpressionParser("x", "X");
+    }
+}
@@ -132,8 +132,7 @@ public class ShuntingYardAlgorithmTestes {
         List<Token> postfixTokens = algorithm.convertToPostfix(infixTokens);
         
         // O teste foi corrigido para esperar 2 argumentos, que é o resultado correto do algoritmo.
-        FunctionToken logToken = new FunctionToken("log");
-        logToken.setArguments(2);
+        FunctionToken logToken = new FunctionToken("log", 2);
         
         List<Token> expectedTokens = Arrays.asList(
             new NumberToken("100"), new NumberToken("10"), logToken
@@ -142,6 +141,19 @@ public class ShuntingYardAlgorithmTestes {
         assertEquals(expectedTokens.toString(), postfixTokens.toString());
     }
     
+    @Test
+    public void testConvertToPostfix_DoesNotModifyInputTokens() {
+        // Os tokens de entrada podem estar compartilhados: a contagem de argumentos vai em um token novo
+        FunctionToken meanToken = new FunctionToken("mean");
+        List<Token> infixTokens = Arrays.asList(
+            meanToken, new ParenthesisToken("("), new NumberToken("1"), new Token(TokenType.SEPARATOR, ","){}, new NumberToken("2"), new ParenthesisToken(")")
+        );
+        List<Token> postfixTokens = algorithm.convertToPostfix(infixTokens);
+
+        assertEquals(1, meanToken.getArguments());
+        assertEquals(2, postfixTokens.get(2).getArguments());
+    }
+    
     @Test
     public void testConvertToPostfix_Factorial() {
         // Testa a conversão de um operador fatorial, como "5!".
@@ -213,5 +225,4 @@ public class ShuntingYardAlgorithmTestes {
         assertThrows(ExpressionException.class, () -> {
             algorithm.convertToPostfix(infixTokens);
         });
-    }
-}
\ No newline at end of file
+    }}
@@ -0,0 +1,62 @@
+package calcgraph.model.parser;
+
+/**
+ * Benchmark manual (não é um teste JUnit): custo por token do {@code tokenize} com sinais
+ * unários, para 1k e 100k tokens. O custo deve se manter constante (antes era quadrático).
+ *
+ * Execução: java -cp build/classes:build/test/classes calcgraph.model.parser.TokenizerBenchmark
+ */
+public class TokenizerBenchmark {
+
+    private static final int[] TOKENS = {1_000, 100_000};
+
+    public static void main(String[] args) {
+        ExpressionParser parser = new ExpressionParser();
+        // Aquecimento
+        for (int i = 0; i < 20; i++) {
+            parser.tokenize(negatedTerms(1000));
+            parser.tokenize(nestedNegation(1000));
+        }
+        System.out.printf("%-10s %22s %22s%n", "tokens", "termos negados", "negação aninhada");
+        for (int tokens : TOKENS) {
+            System.out.printf("%-10d %16.1f ns/tk %16.1f ns/tk%n", tokens,
+                              nanosPerToken(parser, negatedTerms(tokens)),
+                              nanosPerToken(parser, nestedNegation(tokens)));
+        }
+    }
+
+    // Melhor de 5 execuções, dividido pelo número de tokens gerados
+    private static double nanosPerToken(ExpressionParser parser, String expression) {
+        long best = Long.MAX_VALUE;
+        int count = 0;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            count = parser.tokenize(expression).size();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / count;
+    }
+
+    // "1*-1*-1*-1..." : um sinal unário a cada termo
+    private static String negatedTerms(int tokens) {
+        StringBuilder sb = new StringBuilder("1");
+        for (int i = 0; i < tokens / 7; i++) {
+            sb.append("*-1");
+        }
+        return sb.toString();
+    }
+
+    // "-(-(-(...x...)))" : sinais unários aninhados
+    private static String nestedNegation(int tokens) {
+        int depth = tokens / 8;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("-(");
+        }
+        sb.append('x');
+        for (int i = 0; i < depth; i++) {
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+}